@@ -0,0 +1,77 @@
+import java.util.*;
+
+/**
+ * A* search guided by a {@link Heuristic}. With {@link Heuristic#zero()} it is plain Dijkstra.
+ * Nodes are re-expanded if a shorter way to them is found later, so a heuristic that is
+ * admissible but not consistent still gives shortest paths.
+ */
+public class AStarSearch<T> implements PathSearch<T> {
+    private final Heuristic<T> heuristic;
+
+    public AStarSearch(Heuristic<T> heuristic) {
+        this.heuristic = heuristic;
+    }
+
+    @Override
+    public List<Edge<T>> getPath(Graph<T> graph, T from, T to) {
+        Map<T, Step<T>> prev = new HashMap<>();
+        if (search(graph, from, to, prev) < 0) {
+            return null;
+        }
+        List<Edge<T>> path = new ArrayList<>();
+        for (T node = to; !node.equals(from); node = prev.get(node).previous()) {
+            path.add(prev.get(node).edge());
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    @Override
+    public int getDistance(Graph<T> graph, T from, T to) {
+        return search(graph, from, to, null);
+    }
+
+    private int search(Graph<T> graph, T from, T to, Map<T, Step<T>> prev) {
+        if (!graph.getNodes().contains(from) || !graph.getNodes().contains(to)) {
+            return -1;
+        }
+        Map<T, Integer> dist = new HashMap<>();
+        PriorityQueue<QueueEntry<T>> queue = new PriorityQueue<>();
+        dist.put(from, 0);
+        queue.add(new QueueEntry<>(from, 0, heuristic.estimate(from, to)));
+
+        while (!queue.isEmpty()) {
+            QueueEntry<T> entry = queue.poll();
+            T node = entry.node();
+            if (entry.distance() > dist.get(node)) {
+                continue;
+            }
+            if (node.equals(to)) {
+                return entry.distance();
+            }
+            for (Edge<T> edge : graph.getEdgesView(node)) {
+                T destination = edge.getDestination();
+                int altDistance = entry.distance() + edge.getWeight();
+                Integer oldDistance = dist.get(destination);
+                if (oldDistance == null || altDistance < oldDistance) {
+                    dist.put(destination, altDistance);
+                    if (prev != null) {
+                        prev.put(destination, new Step<>(node, edge));
+                    }
+                    queue.add(new QueueEntry<>(destination, altDistance, altDistance + heuristic.estimate(destination, to)));
+                }
+            }
+        }
+        return -1;
+    }
+
+    private record QueueEntry<T>(T node, int distance, int priority) implements Comparable<QueueEntry<T>> {
+        @Override
+        public int compareTo(QueueEntry<T> other) {
+            return Integer.compare(priority, other.priority);
+        }
+    }
+
+    private record Step<T>(T previous, Edge<T> edge) {
+    }
+}
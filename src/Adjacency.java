@@ -0,0 +1,291 @@
+import java.io.Serializable;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * The edges from one node of a {@link ListGraph}, keyed by destination. Most nodes have only a
+ * few neighbours, so up to {@link #INLINE_LIMIT} of them are kept in a small array and found by
+ * a linear scan; a node with more neighbours switches to a hash map, and back again once it has
+ * shrunk to half the limit. An isolated node costs an object header and nothing else.
+ * <p>
+ * Each slot holds either the only edge to a destination or a {@link ParallelEdges} group, so
+ * {@link #get(Object)} and {@link #cheapest()} see one edge per destination however many
+ * parallel edges there are.
+ * <p>
+ * As a collection it is a read-only view of all edges. Its iterators are fail-fast: they throw
+ * {@link ConcurrentModificationException} if an edge is added or removed during iteration.
+ */
+final class Adjacency<T> extends AbstractCollection<Edge<T>> implements Serializable {
+    static final int INLINE_LIMIT = 8;
+
+    // The inline slots are slots[0 .. slotCount - 1]; slots is null while the map is in use.
+    private Object[] slots;
+    private HashMap<T, Object> map;
+    private int slotCount;
+    // Number of edges, counting every parallel edge.
+    private int size;
+    private transient int modCount;
+
+    @SuppressWarnings("unchecked")
+    private static <T> Edge<T> cheapestIn(Object slot) {
+        if (slot instanceof ParallelEdges<?> group) {
+            return (Edge<T>) group.cheapest();
+        }
+        return (Edge<T>) slot;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T> T destinationOf(Object slot) {
+        return (T) cheapestIn(slot).getDestination();
+    }
+
+    private Object slot(Object destination) {
+        if (map != null) {
+            return map.get(destination);
+        }
+        int i = indexOf(destination);
+        return i < 0 ? null : slots[i];
+    }
+
+    private int indexOf(Object destination) {
+        for (int i = 0; i < slotCount; i++) {
+            if (destinationOf(slots[i]).equals(destination)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    // The cheapest edge to destination, or null if there is none.
+    Edge<T> get(Object destination) {
+        Object slot = slot(destination);
+        return slot == null ? null : cheapestIn(slot);
+    }
+
+    @SuppressWarnings("unchecked")
+    Edge<T> get(Object destination, String name) {
+        Object slot = slot(destination);
+        if (slot instanceof ParallelEdges<?> group) {
+            return ((ParallelEdges<T>) group).get(name);
+        }
+        Edge<T> edge = (Edge<T>) slot;
+        return edge != null && edge.getName().equals(name) ? edge : null;
+    }
+
+    boolean containsDestination(Object destination) {
+        return slot(destination) != null;
+    }
+
+    @SuppressWarnings("unchecked")
+    List<Edge<T>> edgesTo(Object destination) {
+        Object slot = slot(destination);
+        if (slot == null) {
+            return List.of();
+        }
+        if (slot instanceof ParallelEdges<?> group) {
+            return List.copyOf(((ParallelEdges<T>) group).edges());
+        }
+        return List.of((Edge<T>) slot);
+    }
+
+    // Adds an edge; the caller makes sure there is no edge with the same destination and name yet.
+    @SuppressWarnings("unchecked")
+    void put(Edge<T> edge) {
+        modCount++;
+        size++;
+        T destination = edge.getDestination();
+        Object slot = slot(destination);
+        if (slot instanceof ParallelEdges<?> group) {
+            ((ParallelEdges<T>) group).add(edge);
+        } else if (slot != null) {
+            replace(destination, new ParallelEdges<>((Edge<T>) slot, edge));
+        } else if (map != null) {
+            map.put(destination, edge);
+        } else if (slotCount == INLINE_LIMIT) {
+            map = new HashMap<>(INLINE_LIMIT * 4);
+            for (int i = 0; i < slotCount; i++) {
+                map.put(destinationOf(slots[i]), slots[i]);
+            }
+            map.put(destination, edge);
+            slots = null;
+        } else {
+            if (slots == null) {
+                slots = new Object[2];
+            } else if (slotCount == slots.length) {
+                slots = Arrays.copyOf(slots, Math.min(slotCount * 2, INLINE_LIMIT));
+            }
+            slots[slotCount++] = edge;
+        }
+    }
+
+    private void replace(Object destination, Object slot) {
+        if (map != null) {
+            map.put(destinationOf(slot), slot);
+        } else {
+            slots[indexOf(destination)] = slot;
+        }
+    }
+
+    // Removes every edge to destination and returns the cheapest of them, or null if there is none.
+    Edge<T> removeDestination(Object destination) {
+        Object slot;
+        if (map != null) {
+            slot = map.remove(destination);
+            if (slot == null) {
+                return null;
+            }
+            if (map.size() <= INLINE_LIMIT / 2) {
+                slots = map.values().toArray(new Object[INLINE_LIMIT]);
+                slotCount = map.size();
+                map = null;
+            }
+        } else {
+            int i = indexOf(destination);
+            if (i < 0) {
+                return null;
+            }
+            slot = slots[i];
+            // Keep the array packed by moving the last slot into the hole
+            slots[i] = slots[--slotCount];
+            slots[slotCount] = null;
+        }
+        modCount++;
+        Edge<T> cheapest = cheapestIn(slot);
+        if (slot instanceof ParallelEdges<?> group) {
+            size -= group.size();
+            group.dissolve();
+        } else {
+            size--;
+        }
+        return cheapest;
+    }
+
+    // Removes the edge to destination with the given name and returns it, or null if there is none.
+    @SuppressWarnings("unchecked")
+    Edge<T> removeEdge(Object destination, String name) {
+        Object slot = slot(destination);
+        if (!(slot instanceof ParallelEdges<?>)) {
+            Edge<T> edge = (Edge<T>) slot;
+            return edge != null && edge.getName().equals(name) ? removeDestination(destination) : null;
+        }
+        ParallelEdges<T> group = (ParallelEdges<T>) slot;
+        Edge<T> removed = group.remove(name);
+        if (removed == null) {
+            return null;
+        }
+        modCount++;
+        size--;
+        if (group.size() == 1) {
+            group.dissolve();
+            replace(destination, group.cheapest());
+        }
+        return removed;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    // The cheapest edge to every destination, which is all a shortest path search needs.
+    Iterable<Edge<T>> cheapest() {
+        return () -> new SlotIterator<>() {
+            @Override
+            Edge<T> fromSlot(Object slot) {
+                return cheapestIn(slot);
+            }
+        };
+    }
+
+    // Every edge, walking into the parallel groups as they come.
+    @Override
+    public Iterator<Edge<T>> iterator() {
+        return new Iterator<>() {
+            private final int expectedModCount = modCount;
+            private final Iterator<Object> slotIterator = slots();
+            private List<Edge<T>> group = List.of();
+            private int next = 0;
+
+            @Override
+            public boolean hasNext() {
+                return next < group.size() || slotIterator.hasNext();
+            }
+
+            @Override
+            @SuppressWarnings("unchecked")
+            public Edge<T> next() {
+                if (modCount != expectedModCount) {
+                    throw new ConcurrentModificationException();
+                }
+                if (next < group.size()) {
+                    return group.get(next++);
+                }
+                Object slot = slotIterator.next();
+                if (slot instanceof ParallelEdges<?> parallel) {
+                    group = ((ParallelEdges<T>) parallel).edges();
+                    next = 1;
+                    return group.get(0);
+                }
+                return (Edge<T>) slot;
+            }
+        };
+    }
+
+    private Iterator<Object> slots() {
+        return new SlotIterator<>() {
+            @Override
+            Object fromSlot(Object slot) {
+                return slot;
+            }
+        };
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public void forEach(Consumer<? super Edge<T>> action) {
+        int expectedModCount = modCount;
+        Iterator<Object> slotIterator = slots();
+        while (slotIterator.hasNext() && modCount == expectedModCount) {
+            Object slot = slotIterator.next();
+            if (slot instanceof ParallelEdges<?> group) {
+                List<Edge<T>> edges = ((ParallelEdges<T>) group).edges();
+                for (int i = 0; i < edges.size() && modCount == expectedModCount; i++) {
+                    action.accept(edges.get(i));
+                }
+            } else {
+                action.accept((Edge<T>) slot);
+            }
+        }
+        if (modCount != expectedModCount) {
+            throw new ConcurrentModificationException();
+        }
+    }
+
+    // Walks the slots, inline or hashed, and fails fast on changes to the adjacency.
+    private abstract class SlotIterator<E> implements Iterator<E> {
+        private final int expectedModCount = modCount;
+        private final Iterator<Object> hashed = map != null ? map.values().iterator() : null;
+        private int next = 0;
+
+        abstract E fromSlot(Object slot);
+
+        @Override
+        public boolean hasNext() {
+            return hashed != null ? hashed.hasNext() : next < slotCount;
+        }
+
+        @Override
+        public E next() {
+            if (modCount != expectedModCount) {
+                throw new ConcurrentModificationException();
+            }
+            if (hashed != null) {
+                return fromSlot(hashed.next());
+            }
+            if (next >= slotCount) {
+                throw new NoSuchElementException();
+            }
+            return fromSlot(slots[next++]);
+        }
+    }
+}
@@ -0,0 +1,286 @@
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Every shortest distance of a {@link Graph}, computed up front so that lookups are a single
+ * array read. Meant for maps of up to some ten thousand nodes.
+ * <p>
+ * Distances are kept in one n x n int matrix, row by row. Dense graphs are solved with blocked
+ * Floyd–Warshall, which works on cache-sized blocks and runs the blocks of each phase in
+ * parallel; sparse graphs with one Dijkstra search per source, the sources spread over the
+ * executor. An optional second matrix of predecessors lets {@link #getPath} rebuild the paths.
+ * <p>
+ * The matrices are allocated before anything is computed, so the constructor checks the
+ * memory they need against a limit, by default the free heap, and refuses with an
+ * {@link IllegalArgumentException} instead of running out of memory halfway through. Like the
+ * other indexes it is a snapshot and does not follow changes to the graph.
+ */
+public class AllPairsShortestPaths<T> {
+    public enum Algorithm {
+        // Floyd–Warshall if the graph is dense enough for it to be faster, otherwise Dijkstra.
+        AUTO,
+        FLOYD_WARSHALL,
+        DIJKSTRA
+    }
+
+    private static final int INFINITY = Integer.MAX_VALUE;
+    // Side of the square blocks of Floyd–Warshall; the three blocks a step reads fit in the L2 cache.
+    private static final int BLOCK = 64;
+    // Sources per Dijkstra task.
+    private static final int SOURCES_PER_TASK = 16;
+
+    private final CompactGraph<T> graph;
+    private final int n;
+    private final Algorithm algorithm;
+    // distances[i * n + j] is the distance from node i to node j, INFINITY if there is no path.
+    private final int[] distances;
+    // predecessors[i * n + j] is the node before j on a shortest path from i, or null if the
+    // paths are not kept. Row i is a shortest path tree from i; unlike next hops taken from
+    // different trees, it cannot send a path in circles when there are ties.
+    private final int[] predecessors;
+    // Edges on the paths so far, only while Floyd–Warshall keeps paths. Among paths of the same
+    // length it keeps the one with fewest edges, so zero weight cycles cannot close a circle
+    // of predecessors.
+    private char[] hops;
+
+    public AllPairsShortestPaths(Graph<T> graph, boolean keepPaths) {
+        this(graph, keepPaths, Algorithm.AUTO, ForkJoinPool.commonPool(), availableMemory());
+    }
+
+    public AllPairsShortestPaths(Graph<T> graph, boolean keepPaths, Algorithm algorithm,
+                                 Executor executor, long memoryLimit) {
+        this.graph = graph instanceof CompactGraph<T> compact ? compact : new CompactGraph<>(graph);
+        n = this.graph.nodeCount();
+        this.algorithm = algorithm != Algorithm.AUTO ? algorithm
+                : isDense(n, this.graph.edgeCount()) ? Algorithm.FLOYD_WARSHALL : Algorithm.DIJKSTRA;
+        long needed = estimateBytes(n, keepPaths, this.algorithm);
+        if ((long) n * n > Integer.MAX_VALUE - 8 || needed > memoryLimit) {
+            throw new IllegalArgumentException(String.format(
+                    "All pairs of %d nodes need about %d MiB, but the limit is %d MiB",
+                    n, needed >> 20, memoryLimit >> 20));
+        }
+        distances = new int[n * n];
+        predecessors = keepPaths ? new int[n * n] : null;
+        if (this.algorithm == Algorithm.FLOYD_WARSHALL) {
+            hops = keepPaths ? new char[n * n] : null;
+            floydWarshall(executor);
+            hops = null;
+        } else {
+            dijkstra(executor);
+        }
+    }
+
+    /**
+     * Bytes of the matrices for n nodes, which is what the constructor checks against its
+     * limit. Floyd–Warshall needs two more bytes per pair while it runs if the paths are kept;
+     * for {@link Algorithm#AUTO} the estimate assumes the algorithm that needs more.
+     */
+    public static long estimateBytes(int nodeCount, boolean keepPaths, Algorithm algorithm) {
+        int perPair = Integer.BYTES;
+        if (keepPaths) {
+            perPair += Integer.BYTES + (algorithm == Algorithm.DIJKSTRA ? 0 : Character.BYTES);
+        }
+        return (long) nodeCount * nodeCount * perPair;
+    }
+
+    private static long availableMemory() {
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.maxMemory() - (runtime.totalMemory() - runtime.freeMemory());
+    }
+
+    // Floyd–Warshall does n³ cheap steps, Dijkstra about n (m + n) log n more expensive ones.
+    private static boolean isDense(int n, int m) {
+        int log = 32 - Integer.numberOfLeadingZeros(Math.max(n, 1));
+        return (long) n * n <= 8L * (m + n) * log;
+    }
+
+    private static void runAll(List<Runnable> tasks, Executor executor) {
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[tasks.size()];
+        for (int i = 0; i < futures.length; i++) {
+            futures[i] = CompletableFuture.runAsync(tasks.get(i), executor);
+        }
+        CompletableFuture.allOf(futures).join();
+    }
+
+    private void floydWarshall(Executor executor) {
+        Arrays.fill(distances, INFINITY);
+        if (hops != null) {
+            // No path yet counts as the most edges, so that it never wins a tie
+            Arrays.fill(hops, Character.MAX_VALUE);
+        }
+        int[] offsets = graph.offsets();
+        int[] targets = graph.targets();
+        int[] weights = graph.weights();
+        for (int u = 0; u < n; u++) {
+            distances[u * n + u] = 0;
+            if (predecessors != null) {
+                predecessors[u * n + u] = u;
+                hops[u * n + u] = 0;
+            }
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int cell = u * n + targets[e];
+                if (weights[e] < distances[cell] && targets[e] != u) {
+                    distances[cell] = weights[e];
+                    if (predecessors != null) {
+                        predecessors[cell] = u;
+                        hops[cell] = 1;
+                    }
+                }
+            }
+        }
+
+        // Each round k first finishes the diagonal block, then the other blocks of row and
+        // column k, which only depend on it, and then all the rest, which depend on those.
+        int blocks = (n + BLOCK - 1) / BLOCK;
+        for (int k = 0; k < blocks; k++) {
+            int kb = k;
+            relaxBlock(kb, kb, kb);
+            List<Runnable> crossing = new ArrayList<>();
+            for (int b = 0; b < blocks; b++) {
+                if (b != kb) {
+                    int other = b;
+                    crossing.add(() -> relaxBlock(kb, other, kb));
+                    crossing.add(() -> relaxBlock(other, kb, kb));
+                }
+            }
+            runAll(crossing, executor);
+            List<Runnable> rest = new ArrayList<>();
+            for (int i = 0; i < blocks; i++) {
+                if (i != kb) {
+                    int ib = i;
+                    rest.add(() -> {
+                        for (int jb = 0; jb < blocks; jb++) {
+                            if (jb != kb) {
+                                relaxBlock(ib, jb, kb);
+                            }
+                        }
+                    });
+                }
+            }
+            runAll(rest, executor);
+        }
+    }
+
+    // Relaxes the paths of block (ib, jb) through the nodes of block kb.
+    private void relaxBlock(int ib, int jb, int kb) {
+        int kEnd = Math.min(n, (kb + 1) * BLOCK);
+        int iEnd = Math.min(n, (ib + 1) * BLOCK);
+        int jStart = jb * BLOCK;
+        int jEnd = Math.min(n, jStart + BLOCK);
+        for (int k = kb * BLOCK; k < kEnd; k++) {
+            int kRow = k * n;
+            for (int i = ib * BLOCK; i < iEnd; i++) {
+                int iRow = i * n;
+                int ik = distances[iRow + k];
+                if (ik == INFINITY) {
+                    continue;
+                }
+                if (predecessors == null) {
+                    for (int j = jStart; j < jEnd; j++) {
+                        // In long, so that INFINITY plus anything never looks shorter
+                        long through = (long) ik + distances[kRow + j];
+                        if (through < distances[iRow + j]) {
+                            distances[iRow + j] = (int) through;
+                        }
+                    }
+                    continue;
+                }
+                int ikHops = hops[iRow + k];
+                for (int j = jStart; j < jEnd; j++) {
+                    long through = (long) ik + distances[kRow + j];
+                    if (through < distances[iRow + j] || through == distances[iRow + j]
+                            && ikHops + hops[kRow + j] < hops[iRow + j]) {
+                        distances[iRow + j] = (int) through;
+                        hops[iRow + j] = (char) (ikHops + hops[kRow + j]);
+                        predecessors[iRow + j] = predecessors[kRow + j];
+                    }
+                }
+            }
+        }
+    }
+
+    private void dijkstra(Executor executor) {
+        int[] all = new int[n];
+        for (int v = 0; v < n; v++) {
+            all[v] = v;
+        }
+        List<Runnable> tasks = new ArrayList<>();
+        for (int first = 0; first < n; first += SOURCES_PER_TASK) {
+            int from = first;
+            int to = Math.min(n, first + SOURCES_PER_TASK);
+            tasks.add(() -> {
+                SearchWorkspace workspace = SearchWorkspace.acquire(n);
+                try {
+                    for (int source = from; source < to; source++) {
+                        workspace.clear();
+                        graph.searchAll(source, all, workspace);
+                        fillRow(source, workspace);
+                    }
+                } finally {
+                    workspace.release();
+                }
+            });
+        }
+        runAll(tasks, executor);
+    }
+
+    private void fillRow(int source, SearchWorkspace workspace) {
+        int row = source * n;
+        for (int v = 0; v < n; v++) {
+            boolean reached = workspace.reached(v);
+            distances[row + v] = reached ? workspace.dist[v] : INFINITY;
+            if (predecessors != null && reached) {
+                predecessors[row + v] = workspace.parent[v];
+            }
+        }
+    }
+
+    public Algorithm getAlgorithm() {
+        return algorithm;
+    }
+
+    // The shortest distance, or -1 if there is no path or a node is not in the graph.
+    public int getDistance(T from, T to) {
+        Integer i = graph.id(from);
+        Integer j = graph.id(to);
+        if (i == null || j == null) {
+            return -1;
+        }
+        int distance = distances[i * n + j];
+        return distance == INFINITY ? -1 : distance;
+    }
+
+    /**
+     * A shortest path, as edges of the snapshot, or null if there is none. Only available when
+     * the paths were kept; otherwise throws {@link IllegalStateException}.
+     */
+    public List<Edge<T>> getPath(T from, T to) {
+        if (predecessors == null) {
+            throw new IllegalStateException("The paths were not kept");
+        }
+        Integer i = graph.id(from);
+        Integer j = graph.id(to);
+        if (i == null || j == null || distances[i * n + j] == INFINITY) {
+            return null;
+        }
+        List<Edge<T>> path = new ArrayList<>();
+        for (int v = j; v != i; ) {
+            int u = predecessors[i * n + v];
+            path.add(graph.edge(graph.findSlot(u, v)));
+            v = u;
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    public long footprintBytes() {
+        return (long) n * n * Integer.BYTES * (predecessors != null ? 2 : 1);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AllPairsShortestPaths[%d nodes, %s, %d MiB]", n, algorithm, footprintBytes() >> 20);
+    }
+}
@@ -0,0 +1,114 @@
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AllPairsShortestPathsTest {
+	private static final int SIZE = 11;
+
+	// Ett rutnät som är större än ett block i Floyd–Warshall, plus en ö som inte går att nå.
+	private final ListGraph<Integer> grid = new ListGraph<>();
+
+	@BeforeEach
+	void setUp() {
+		Random random = new Random(13);
+		for (int i = 0; i < SIZE * SIZE; i++) {
+			grid.add(i);
+		}
+		for (int i = 0; i < SIZE * SIZE; i++) {
+			if (i % SIZE < SIZE - 1) {
+				grid.connect(i, i + 1, "Train", random.nextInt(20));
+			}
+			if (i / SIZE < SIZE - 1) {
+				grid.connect(i, i + SIZE, "Boat", random.nextInt(20));
+			}
+		}
+		grid.add(-1);
+		grid.add(-2);
+		grid.connect(-1, -2, "Bridge", 4);
+	}
+
+	@ParameterizedTest
+	@EnumSource(value = AllPairsShortestPaths.Algorithm.class, names = {"FLOYD_WARSHALL", "DIJKSTRA"})
+	@DisplayName("Testar att alla avstånd och vägar stämmer med Dijkstra.")
+	void matchesDijkstra(AllPairsShortestPaths.Algorithm algorithm) {
+		var allPairs = new AllPairsShortestPaths<>(grid, true, algorithm, ForkJoinPool.commonPool(), Long.MAX_VALUE);
+		assertEquals(algorithm, allPairs.getAlgorithm());
+		for (Integer from : grid.getNodes()) {
+			for (Integer to : grid.getNodes()) {
+				int expected = grid.getDistance(from, to);
+				assertEquals(expected, allPairs.getDistance(from, to), "Fel avstånd mellan " + from + " och " + to);
+				List<Edge<Integer>> path = allPairs.getPath(from, to);
+				if (expected < 0) {
+					assertNull(path);
+					continue;
+				}
+				int cost = 0;
+				int current = from;
+				for (Edge<Integer> edge : path) {
+					assertNotNull(grid.getEdgeBetween(current, edge.getDestination()), "Fel: vägen går inte längs bågar i grafen.");
+					current = edge.getDestination();
+					cost += edge.getWeight();
+				}
+				assertEquals(to, current);
+				assertEquals(expected, cost);
+			}
+		}
+		assertEquals(-1, allPairs.getDistance(0, 1000));
+	}
+
+	@Test
+	@DisplayName("Testar enkelriktade bågar och valet mellan Floyd–Warshall och Dijkstra.")
+	void directedDenseGraph() {
+		DirectedGraph<Integer> graph = new DirectedGraph<>();
+		Random random = new Random(4);
+		for (int i = 0; i < 40; i++) {
+			graph.add(i);
+		}
+		for (int u = 0; u < 40; u++) {
+			for (int v = 0; v < 40; v++) {
+				if (u != v && random.nextInt(3) == 0) {
+					graph.connectOneWay(u, v, u + " -> " + v, random.nextInt(100));
+				}
+			}
+		}
+		var allPairs = new AllPairsShortestPaths<>(graph, false);
+		assertEquals(AllPairsShortestPaths.Algorithm.FLOYD_WARSHALL, allPairs.getAlgorithm());
+		for (int u = 0; u < 40; u++) {
+			for (int v = 0; v < 40; v++) {
+				assertEquals(graph.getDistance(u, v), allPairs.getDistance(u, v));
+			}
+		}
+		assertThrows(IllegalStateException.class, () -> allPairs.getPath(0, 1));
+
+		// En lång stig är gles, så där väljs Dijkstra
+		ListGraph<Integer> line = new ListGraph<>();
+		for (int i = 0; i < 600; i++) {
+			line.add(i);
+			if (i > 0) {
+				line.connect(i - 1, i, "Road", 1);
+			}
+		}
+		var sparse = new AllPairsShortestPaths<>(line, false);
+		assertEquals(AllPairsShortestPaths.Algorithm.DIJKSTRA, sparse.getAlgorithm());
+		assertEquals(599, sparse.getDistance(0, 599));
+	}
+
+	@Test
+	@DisplayName("Testar att minnesuppskattningen stoppar en för stor beräkning.")
+	void refusesWhenTooLarge() {
+		int nodes = SIZE * SIZE + 2;
+		var dijkstra = AllPairsShortestPaths.Algorithm.DIJKSTRA;
+		var floydWarshall = AllPairsShortestPaths.Algorithm.FLOYD_WARSHALL;
+		assertEquals(8L * nodes * nodes, AllPairsShortestPaths.estimateBytes(nodes, true, dijkstra));
+		assertEquals(10L * nodes * nodes, AllPairsShortestPaths.estimateBytes(nodes, true, floydWarshall));
+		assertThrows(IllegalArgumentException.class, () -> new AllPairsShortestPaths<>(grid, true,
+				floydWarshall, ForkJoinPool.commonPool(), AllPairsShortestPaths.estimateBytes(nodes, true, floydWarshall) - 1));
+		var allPairs = new AllPairsShortestPaths<>(grid, false, dijkstra, Runnable::run, AllPairsShortestPaths.estimateBytes(nodes, false, dijkstra));
+		assertEquals(4L * nodes * nodes, allPairs.footprintBytes());
+	}
+}
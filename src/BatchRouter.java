@@ -0,0 +1,126 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Answers large batches of route requests, such as a nightly job over millions of origin and
+ * destination pairs.
+ * <p>
+ * Requests are grouped by origin and each group is answered by one Dijkstra search on a
+ * {@link CompactGraph} snapshot, which stops once all destinations of the group are settled.
+ * The groups run in parallel on the executor, which can be any {@link Executor}: the common
+ * {@link ForkJoinPool} by default, a pool of its own, or a virtual thread executor on a JDK
+ * that has one. Results are streamed back as groups finish, in no particular order, and only
+ * a bounded number of groups is in flight at a time, so the results of a whole batch are never
+ * held in memory at once unless the caller collects them.
+ * <p>
+ * The snapshot is taken when the router is created and does not follow changes to the graph.
+ */
+public class BatchRouter<T> {
+    private final CompactGraph<T> graph;
+    private final Executor executor;
+    // Groups submitted to the executor but not yet taken by the consumer.
+    private final int window;
+
+    public BatchRouter(Graph<T> graph) {
+        this(graph, ForkJoinPool.commonPool());
+    }
+
+    public BatchRouter(Graph<T> graph, Executor executor) {
+        this(graph, executor, 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    public BatchRouter(Graph<T> graph, Executor executor, int window) {
+        if (window < 1) {
+            throw new IllegalArgumentException("The window must be positive");
+        }
+        this.graph = graph instanceof CompactGraph<T> compact ? compact : new CompactGraph<>(graph);
+        this.executor = executor;
+        this.window = window;
+    }
+
+    /**
+     * The shortest path for every request, as a stream that computes the paths while it is
+     * consumed. A path is null, as from {@link Graph#getPath}, if there is no path or a node is
+     * not in the graph. A failure in a search is thrown from the stream as a
+     * {@link CompletionException}.
+     */
+    public Stream<Route<T>> getPaths(Collection<Pair<T, T>> requests) {
+        Map<T, List<T>> groups = new LinkedHashMap<>();
+        for (Pair<T, T> request : requests) {
+            groups.computeIfAbsent(request.first(), from -> new ArrayList<>()).add(request.second());
+        }
+        return StreamSupport.stream(new RouteSpliterator(groups, requests.size()), false);
+    }
+
+    private List<Route<T>> route(T from, List<T> destinations) {
+        List<Route<T>> routes = new ArrayList<>(destinations.size());
+        Integer source = graph.id(from);
+        if (source == null) {
+            for (T to : destinations) {
+                routes.add(new Route<>(from, to, null));
+            }
+            return routes;
+        }
+        int[] targetIds = new int[destinations.size()];
+        for (int i = 0; i < targetIds.length; i++) {
+            Integer id = graph.id(destinations.get(i));
+            targetIds[i] = id == null ? -1 : id;
+        }
+        SearchWorkspace workspace = SearchWorkspace.acquire(graph.nodeCount());
+        try {
+            graph.searchAll(source, Arrays.stream(targetIds).filter(id -> id >= 0).toArray(), workspace);
+            for (int i = 0; i < targetIds.length; i++) {
+                List<Edge<T>> path = targetIds[i] < 0 ? null : graph.pathIn(workspace, source, targetIds[i]);
+                routes.add(new Route<>(from, destinations.get(i), path));
+            }
+        } finally {
+            workspace.release();
+        }
+        return routes;
+    }
+
+    // Feeds the executor up to window groups ahead of the consumer and hands out finished groups.
+    private class RouteSpliterator extends Spliterators.AbstractSpliterator<Route<T>> {
+        private final Iterator<Map.Entry<T, List<T>>> groups;
+        private final BlockingQueue<CompletableFuture<List<Route<T>>>> finished = new LinkedBlockingQueue<>();
+        private int inFlight;
+        private Iterator<Route<T>> current = Collections.emptyIterator();
+
+        private RouteSpliterator(Map<T, List<T>> groups, long size) {
+            super(size, Spliterator.SIZED | Spliterator.NONNULL);
+            this.groups = groups.entrySet().iterator();
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super Route<T>> action) {
+            while (!current.hasNext()) {
+                while (inFlight < window && groups.hasNext()) {
+                    Map.Entry<T, List<T>> group = groups.next();
+                    CompletableFuture<List<Route<T>>> future =
+                            CompletableFuture.supplyAsync(() -> route(group.getKey(), group.getValue()), executor);
+                    future.whenComplete((routes, failure) -> finished.add(future));
+                    inFlight++;
+                }
+                if (inFlight == 0) {
+                    return false;
+                }
+                try {
+                    current = finished.take().join().iterator();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new CancellationException("Interrupted while waiting for routes");
+                }
+                inFlight--;
+            }
+            action.accept(current.next());
+            return true;
+        }
+    }
+
+    // A request and its shortest path, null if there is none.
+    public record Route<T>(T from, T to, List<Edge<T>> path) {
+    }
+}
@@ -0,0 +1,90 @@
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BatchRouterTest {
+	private static final int SIZE = 10;
+
+	// Ett rutnät där noden i har koordinaterna (i % SIZE, i / SIZE), plus en ö som inte går att nå.
+	private final ListGraph<Integer> grid = new ListGraph<>();
+
+	@BeforeEach
+	void setUp() {
+		Random random = new Random(3);
+		for (int i = 0; i < SIZE * SIZE; i++) {
+			grid.add(i);
+		}
+		for (int i = 0; i < SIZE * SIZE; i++) {
+			if (i % SIZE < SIZE - 1) {
+				grid.connect(i, i + 1, i + " - " + (i + 1), 1 + random.nextInt(9));
+			}
+			if (i / SIZE < SIZE - 1) {
+				grid.connect(i, i + SIZE, i + " - " + (i + SIZE), 1 + random.nextInt(9));
+			}
+		}
+		grid.add(-1);
+	}
+
+	@Test
+	@DisplayName("Testar att varje förfrågan får samma väg som getPath, med flera trådar.")
+	void pathsMatchGetPath() {
+		Random random = new Random(9);
+		List<Pair<Integer, Integer>> requests = new ArrayList<>();
+		for (int i = 0; i < 2000; i++) {
+			requests.add(new Pair<>(random.nextInt(12), random.nextInt(SIZE * SIZE)));
+		}
+		requests.add(new Pair<>(0, -1));
+		requests.add(new Pair<>(1000, 0));
+		requests.add(new Pair<>(5, 5));
+
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			BatchRouter<Integer> router = new BatchRouter<>(grid, executor, 3);
+			List<BatchRouter.Route<Integer>> routes = router.getPaths(requests).collect(Collectors.toList());
+			assertEquals(requests.size(), routes.size());
+			for (BatchRouter.Route<Integer> route : routes) {
+				List<Edge<Integer>> expected = route.from() == 1000 ? null : grid.getPath(route.from(), route.to());
+				if (expected == null) {
+					assertNull(route.path(), "Fel: det borde inte ha funnits någon väg.");
+					continue;
+				}
+				int cost = 0;
+				int current = route.from();
+				for (Edge<Integer> edge : route.path()) {
+					assertNotNull(grid.getEdgeBetween(current, edge.getDestination()), "Fel: vägen går inte längs bågar i grafen.");
+					current = edge.getDestination();
+					cost += edge.getWeight();
+				}
+				assertEquals(route.to(), current);
+				assertEquals(grid.getDistance(route.from(), route.to()), cost);
+			}
+		} finally {
+			executor.shutdown();
+		}
+	}
+
+	@Test
+	@DisplayName("Testar att resultaten beräknas medan strömmen läses.")
+	void resultsAreStreamed() {
+		List<Pair<Integer, Integer>> requests = new ArrayList<>();
+		for (int from = 0; from < SIZE * SIZE; from++) {
+			requests.add(new Pair<>(from, 0));
+		}
+		AtomicInteger tasks = new AtomicInteger();
+		Executor counting = task -> {
+			tasks.incrementAndGet();
+			task.run();
+		};
+		BatchRouter<Integer> router = new BatchRouter<>(new CompactGraph<>(grid), counting, 2);
+		// Utan att läsa hela strömmen räknas bara de grupper som behövs, plus högst två i förväg
+		List<BatchRouter.Route<Integer>> first = router.getPaths(requests).limit(3).collect(Collectors.toList());
+		assertEquals(3, first.size());
+		assertTrue(tasks.get() <= 5, "Fel: för många grupper beräknades, " + tasks.get());
+		assertFalse(router.getPaths(List.of()).iterator().hasNext());
+	}
+}
@@ -0,0 +1,118 @@
+import java.util.*;
+
+/**
+ * Dijkstra run from both ends at once. The forward search follows edges from {@code from} and
+ * the backward search follows {@link Graph#getEdgesTo} from {@code to}, so it also works on a
+ * {@link DirectedGraph}; each side usually settles about half as many nodes as a one-sided
+ * search.
+ * <p>
+ * The search stops when the smallest keys of the two queues together reach the best
+ * connection found so far, since no path through an unsettled node can be shorter.
+ */
+public class BidirectionalSearch<T> implements PathSearch<T> {
+
+    @Override
+    public List<Edge<T>> getPath(Graph<T> graph, T from, T to) {
+        Side<T> forward = new Side<>(from);
+        Side<T> backward = new Side<>(to);
+        T meeting = search(graph, from, to, forward, backward);
+        if (meeting == null) {
+            return null;
+        }
+        List<Edge<T>> path = new ArrayList<>();
+        for (T node = meeting; !node.equals(from); node = forward.prev.get(node).previous()) {
+            path.add(forward.prev.get(node).edge());
+        }
+        Collections.reverse(path);
+        // The backward side stored the edges in travel direction, each leading to "previous"
+        for (T node = meeting; !node.equals(to); node = backward.prev.get(node).previous()) {
+            path.add(backward.prev.get(node).edge());
+        }
+        return path;
+    }
+
+    @Override
+    public int getDistance(Graph<T> graph, T from, T to) {
+        Side<T> forward = new Side<>(from);
+        Side<T> backward = new Side<>(to);
+        T meeting = search(graph, from, to, forward, backward);
+        return meeting == null ? -1 : forward.dist.get(meeting) + backward.dist.get(meeting);
+    }
+
+    // Returns the node where the shortest path passes from the forward to the backward side.
+    private T search(Graph<T> graph, T from, T to, Side<T> forward, Side<T> backward) {
+        if (!graph.getNodes().contains(from) || !graph.getNodes().contains(to)) {
+            return null;
+        }
+        if (from.equals(to)) {
+            return from;
+        }
+        Meeting<T> meeting = new Meeting<>();
+        while (!forward.queue.isEmpty() && !backward.queue.isEmpty()) {
+            if ((long) forward.queue.peek().distance() + backward.queue.peek().distance() >= meeting.best) {
+                break;
+            }
+            Side<T> side = forward.queue.size() <= backward.queue.size() ? forward : backward;
+            Side<T> other = side == forward ? backward : forward;
+
+            QueueEntry<T> entry = side.queue.poll();
+            T node = entry.node();
+            if (entry.distance() > side.dist.get(node)) {
+                continue;
+            }
+            if (side == forward) {
+                for (Edge<T> edge : graph.getEdgesView(node)) {
+                    relax(side, other, meeting, node, entry.distance(), edge.getDestination(), edge);
+                }
+            } else {
+                for (Map.Entry<T, Edge<T>> incoming : graph.getEdgesTo(node)) {
+                    relax(side, other, meeting, node, entry.distance(), incoming.getKey(), incoming.getValue());
+                }
+            }
+        }
+        return meeting.node;
+    }
+
+    // Relaxes the edge between node and next, which runs from next to node on the backward side.
+    private static <T> void relax(Side<T> side, Side<T> other, Meeting<T> meeting, T node, int distance, T next, Edge<T> edge) {
+        int altDistance = distance + edge.getWeight();
+        Integer oldDistance = side.dist.get(next);
+        if (oldDistance == null || altDistance < oldDistance) {
+            side.dist.put(next, altDistance);
+            side.prev.put(next, new Step<>(node, edge));
+            side.queue.add(new QueueEntry<>(next, altDistance));
+        }
+        Integer otherDistance = other.dist.get(next);
+        if (otherDistance != null && altDistance + otherDistance < meeting.best) {
+            meeting.best = altDistance + otherDistance;
+            meeting.node = next;
+        }
+    }
+
+    // The best connection between the two sides found so far.
+    private static class Meeting<T> {
+        private T node;
+        private int best = Integer.MAX_VALUE;
+    }
+
+    private static class Side<T> {
+        private final Map<T, Integer> dist = new HashMap<>();
+        private final Map<T, Step<T>> prev = new HashMap<>();
+        private final PriorityQueue<QueueEntry<T>> queue = new PriorityQueue<>();
+
+        private Side(T start) {
+            dist.put(start, 0);
+            queue.add(new QueueEntry<>(start, 0));
+        }
+    }
+
+    private record QueueEntry<T>(T node, int distance) implements Comparable<QueueEntry<T>> {
+        @Override
+        public int compareTo(QueueEntry<T> other) {
+            return Integer.compare(distance, other.distance);
+        }
+    }
+
+    private record Step<T>(T previous, Edge<T> edge) {
+    }
+}
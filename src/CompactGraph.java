@@ -0,0 +1,524 @@
+import java.io.Serializable;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * An immutable snapshot of a {@link Graph} for read-heavy use.
+ * <p>
+ * Nodes are numbered with dense int ids and the adjacency is stored in compressed sparse row
+ * form: the edges of node {@code i} are the slots {@code offsets[i] .. offsets[i + 1] - 1} in
+ * {@code targets}, {@code weights} and {@code nameIds}. Every row is sorted by target id, and
+ * edge names are interned into a single table. {@link Edge} objects are only created when a
+ * caller asks for them, so changing their weight does not affect the snapshot. A snapshot of a
+ * directed graph also keeps, for every node, the slots of the edges into it.
+ * <p>
+ * All methods that would modify the graph throw {@link UnsupportedOperationException}. For
+ * bulk weight changes, fill a side array indexed by {@link #edgeSlot} and pass it to
+ * {@link #withWeights}, which shares everything but the weights with this snapshot.
+ */
+public class CompactGraph<T> implements Graph<T>, Serializable {
+    private final Object[] nodes;
+    private final Map<T, Integer> ids;
+    private final int[] offsets;
+    private final int[] targets;
+    private final int[] weights;
+    private final int[] nameIds;
+    private final String[] names;
+    // Component labels of an undirected graph, null if the graph is directed.
+    private final int[] components;
+    // The edges into node i of a directed graph are reverseSlots[reverseOffsets[i] .. reverseOffsets[i + 1] - 1],
+    // starting at the matching reverseSources. All three are null for an undirected graph.
+    private final int[] reverseOffsets;
+    private final int[] reverseSlots;
+    private final int[] reverseSources;
+    private final int maxWeight;
+
+    public CompactGraph(Graph<T> source) {
+        Set<T> sourceNodes = source.getNodes();
+        int n = sourceNodes.size();
+        nodes = new Object[n];
+        ids = new HashMap<>(n * 2);
+        int next = 0;
+        for (T node : sourceNodes) {
+            ids.put(node, next);
+            nodes[next++] = node;
+        }
+
+        offsets = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            offsets[i + 1] = offsets[i] + source.getEdgesFrom(node(i)).size();
+        }
+        int m = offsets[n];
+        targets = new int[m];
+        weights = new int[m];
+        nameIds = new int[m];
+
+        Map<String, Integer> nameTable = new HashMap<>();
+        long[] row = new long[0];
+        for (int i = 0; i < n; i++) {
+            Collection<Edge<T>> edges = source.getEdgesFrom(node(i));
+            if (row.length < edges.size()) {
+                row = new long[edges.size()];
+            }
+            int[] rowNames = new int[edges.size()];
+            int[] rowWeights = new int[edges.size()];
+            int k = 0;
+            for (Edge<T> edge : edges) {
+                Integer nameId = nameTable.computeIfAbsent(edge.getName(), name -> nameTable.size());
+                rowNames[k] = nameId;
+                rowWeights[k] = edge.getWeight();
+                // Sort each row by target id, keeping track of where every edge came from
+                row[k] = ((long) ids.get(edge.getDestination()) << 32) | k;
+                k++;
+            }
+            Arrays.sort(row, 0, k);
+            for (int j = 0; j < k; j++) {
+                int from = (int) row[j];
+                targets[offsets[i] + j] = (int) (row[j] >>> 32);
+                weights[offsets[i] + j] = rowWeights[from];
+                nameIds[offsets[i] + j] = rowNames[from];
+            }
+        }
+        names = new String[nameTable.size()];
+        nameTable.forEach((name, id) -> names[id] = name);
+
+        maxWeight = max(weights);
+        if (source.isDirected()) {
+            components = null;
+            reverseOffsets = new int[n + 1];
+            for (int e = 0; e < m; e++) {
+                reverseOffsets[targets[e] + 1]++;
+            }
+            for (int i = 0; i < n; i++) {
+                reverseOffsets[i + 1] += reverseOffsets[i];
+            }
+            reverseSlots = new int[m];
+            reverseSources = new int[m];
+            int[] fill = Arrays.copyOf(reverseOffsets, n);
+            for (int i = 0; i < n; i++) {
+                for (int e = offsets[i]; e < offsets[i + 1]; e++) {
+                    int r = fill[targets[e]]++;
+                    reverseSlots[r] = e;
+                    reverseSources[r] = i;
+                }
+            }
+        } else {
+            components = labelComponents();
+            reverseOffsets = null;
+            reverseSlots = null;
+            reverseSources = null;
+        }
+    }
+
+    private CompactGraph(CompactGraph<T> topology, int[] weights) {
+        nodes = topology.nodes;
+        ids = topology.ids;
+        offsets = topology.offsets;
+        targets = topology.targets;
+        this.weights = weights;
+        nameIds = topology.nameIds;
+        names = topology.names;
+        components = topology.components;
+        reverseOffsets = topology.reverseOffsets;
+        reverseSlots = topology.reverseSlots;
+        reverseSources = topology.reverseSources;
+        maxWeight = max(weights);
+    }
+
+    // Index of the edge from -> to in the weight array, or -1 if there is no such edge.
+    public int edgeSlot(T from, T to) {
+        return findSlot(idOf(from), idOf(to));
+    }
+
+    // A copy of the weight array, indexed by edge slot.
+    public int[] getWeights() {
+        return weights.clone();
+    }
+
+    /**
+     * A snapshot with the same nodes and edges as this one and the given weights, indexed by
+     * {@link #edgeSlot}. The array is copied, so the caller can keep updating it.
+     */
+    public CompactGraph<T> withWeights(int[] weights) {
+        if (weights.length != targets.length) {
+            throw new IllegalArgumentException("Expected " + targets.length + " weights");
+        }
+        for (int weight : weights) {
+            if (weight < 0) {
+                throw new IllegalArgumentException("The weight is negative");
+            }
+        }
+        return new CompactGraph<>(this, weights.clone());
+    }
+
+    private static int max(int[] values) {
+        int max = 0;
+        for (int value : values) {
+            max = Math.max(max, value);
+        }
+        return max;
+    }
+
+    private int[] labelComponents() {
+        int n = nodes.length;
+        int[] labels = new int[n];
+        Arrays.fill(labels, -1);
+        int[] queue = new int[n];
+        for (int root = 0; root < n; root++) {
+            if (labels[root] >= 0) {
+                continue;
+            }
+            labels[root] = root;
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = root;
+            while (head < tail) {
+                int u = queue[head++];
+                for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                    if (labels[targets[e]] < 0) {
+                        labels[targets[e]] = root;
+                        queue[tail++] = targets[e];
+                    }
+                }
+            }
+        }
+        return labels;
+    }
+
+    @SuppressWarnings("unchecked")
+    T node(int id) {
+        return (T) nodes[id];
+    }
+
+    private int idOf(T node) {
+        Integer id = ids.get(node);
+        if (id == null) {
+            throw new NoSuchElementException("The node is not found");
+        }
+        return id;
+    }
+
+    Edge<T> edge(int slot) {
+        return new Edge<>(node(targets[slot]), names[nameIds[slot]], weights[slot]);
+    }
+
+    // The cheapest of the slots from -> to, which sit next to each other when a graph with
+    // parallel edges was copied, or -1 if there is none.
+    int findSlot(int from, int to) {
+        int slot = Arrays.binarySearch(targets, offsets[from], offsets[from + 1], to);
+        if (slot < 0) {
+            return -1;
+        }
+        int cheapest = slot;
+        for (int e = slot - 1; e >= offsets[from] && targets[e] == to; e--) {
+            cheapest = weights[e] < weights[cheapest] ? e : cheapest;
+        }
+        for (int e = slot + 1; e < offsets[from + 1] && targets[e] == to; e++) {
+            cheapest = weights[e] < weights[cheapest] ? e : cheapest;
+        }
+        return cheapest;
+    }
+
+    int[] offsets() {
+        return offsets;
+    }
+
+    int[] targets() {
+        return targets;
+    }
+
+    int[] weights() {
+        return weights;
+    }
+
+    @Override
+    public void add(T node) {
+        throw new UnsupportedOperationException("CompactGraph is read-only");
+    }
+
+    @Override
+    public void connect(T node1, T node2, String name, int weight) {
+        throw new UnsupportedOperationException("CompactGraph is read-only");
+    }
+
+    @Override
+    public void setConnectionWeight(T node1, T node2, int weight) {
+        throw new UnsupportedOperationException("CompactGraph is read-only");
+    }
+
+    @Override
+    public void disconnect(T node1, T node2) {
+        throw new UnsupportedOperationException("CompactGraph is read-only");
+    }
+
+    @Override
+    public void remove(T node) {
+        throw new UnsupportedOperationException("CompactGraph is read-only");
+    }
+
+    @Override
+    public Set<T> getNodes() {
+        return Collections.unmodifiableSet(ids.keySet());
+    }
+
+    @Override
+    public Collection<Edge<T>> getEdgesFrom(T node) {
+        int id = idOf(node);
+        List<Edge<T>> edges = new ArrayList<>(offsets[id + 1] - offsets[id]);
+        for (int e = offsets[id]; e < offsets[id + 1]; e++) {
+            edges.add(edge(e));
+        }
+        return Collections.unmodifiableList(edges);
+    }
+
+    // A view of the slots of the node; each access creates the Edge, nothing is copied up front.
+    @Override
+    public Collection<Edge<T>> getEdgesView(T node) {
+        int id = idOf(node);
+        int first = offsets[id];
+        int size = offsets[id + 1] - first;
+        return new AbstractList<>() {
+            @Override
+            public Edge<T> get(int index) {
+                return edge(first + Objects.checkIndex(index, size));
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public void forEachEdge(T node, Consumer<? super Edge<T>> action) {
+        int id = idOf(node);
+        for (int e = offsets[id]; e < offsets[id + 1]; e++) {
+            action.accept(edge(e));
+        }
+    }
+
+    @Override
+    public Edge<T> getEdgeBetween(T node1, T node2) {
+        int slot = findSlot(idOf(node1), idOf(node2));
+        return slot < 0 ? null : edge(slot);
+    }
+
+    @Override
+    public boolean isDirected() {
+        return components == null;
+    }
+
+    @Override
+    public Collection<Map.Entry<T, Edge<T>>> getEdgesTo(T node) {
+        if (!isDirected()) {
+            return Graph.super.getEdgesTo(node);
+        }
+        int id = idOf(node);
+        List<Map.Entry<T, Edge<T>>> edges = new ArrayList<>(reverseOffsets[id + 1] - reverseOffsets[id]);
+        for (int r = reverseOffsets[id]; r < reverseOffsets[id + 1]; r++) {
+            edges.add(Map.entry(node(reverseSources[r]), edge(reverseSlots[r])));
+        }
+        return Collections.unmodifiableList(edges);
+    }
+
+    @Override
+    public boolean pathExists(T from, T to) {
+        if (isDirected()) {
+            return getDistance(from, to) >= 0;
+        }
+        Integer fromId = ids.get(from);
+        Integer toId = ids.get(to);
+        return fromId != null && toId != null && components[fromId] == components[toId];
+    }
+
+    // False when the component labels rule out a path; a directed graph always has to be searched.
+    private boolean mayReach(T from, T to) {
+        return isDirected() ? ids.containsKey(from) && ids.containsKey(to) : pathExists(from, to);
+    }
+
+    @Override
+    public List<Edge<T>> getPath(T from, T to) {
+        if (!mayReach(from, to)) {
+            return null;
+        }
+        int source = ids.get(from);
+        int target = ids.get(to);
+        SearchWorkspace workspace = SearchWorkspace.acquire(nodes.length);
+        try {
+            if (search(source, target, workspace) < 0) {
+                return null;
+            }
+            List<Edge<T>> path = new ArrayList<>();
+            for (int v = target; v != source; v = workspace.parent[v]) {
+                path.add(edge(workspace.parentSlot[v]));
+            }
+            Collections.reverse(path);
+            return path;
+        } finally {
+            workspace.release();
+        }
+    }
+
+    @Override
+    public int getDistance(T from, T to) {
+        if (!mayReach(from, to)) {
+            return -1;
+        }
+        SearchWorkspace workspace = SearchWorkspace.acquire(nodes.length);
+        try {
+            return search(ids.get(from), ids.get(to), workspace);
+        } finally {
+            workspace.release();
+        }
+    }
+
+    private int search(int source, int target, SearchWorkspace workspace) {
+        int[] dist = workspace.dist;
+        LongPriorityQueue heap = workspace.priorityQueue(maxWeight);
+        workspace.reach(source, 0, source, null);
+        heap.add(LongMinHeap.pack(0, source));
+        while (!heap.isEmpty()) {
+            long entry = heap.poll();
+            int u = LongMinHeap.node(entry);
+            int d = LongMinHeap.distance(entry);
+            if (d > dist[u]) {
+                continue;
+            }
+            if (u == target) {
+                return d;
+            }
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int v = targets[e];
+                int alt = d + weights[e];
+                if (!workspace.reached(v) || alt < dist[v]) {
+                    workspace.reach(v, alt, u, null);
+                    workspace.parentSlot[v] = e;
+                    heap.add(LongMinHeap.pack(alt, v));
+                }
+            }
+        }
+        return -1;
+    }
+
+    // The id of node, or null if it is not in the graph.
+    Integer id(T node) {
+        return ids.get(node);
+    }
+
+    /**
+     * Dijkstra from source that stops once every target it can reach is settled, for callers
+     * that want paths to many targets out of one search. The shortest path tree is left in the
+     * workspace, where {@link #distanceIn} and {@link #pathIn} read it.
+     */
+    void searchAll(int source, int[] targetIds, SearchWorkspace workspace) {
+        BitSet open = new BitSet(nodes.length);
+        int remaining = 0;
+        for (int t : targetIds) {
+            // The component labels rule out targets the search would never reach
+            if ((components == null || components[t] == components[source]) && !open.get(t)) {
+                open.set(t);
+                remaining++;
+            }
+        }
+        int[] dist = workspace.dist;
+        LongPriorityQueue heap = workspace.priorityQueue(maxWeight);
+        workspace.reach(source, 0, source, null);
+        heap.add(LongMinHeap.pack(0, source));
+        while (remaining > 0 && !heap.isEmpty()) {
+            long entry = heap.poll();
+            int u = LongMinHeap.node(entry);
+            int d = LongMinHeap.distance(entry);
+            if (d > dist[u]) {
+                continue;
+            }
+            if (open.get(u)) {
+                open.clear(u);
+                remaining--;
+            }
+            for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                int v = targets[e];
+                int alt = d + weights[e];
+                if (!workspace.reached(v) || alt < dist[v]) {
+                    workspace.reach(v, alt, u, null);
+                    workspace.parentSlot[v] = e;
+                    heap.add(LongMinHeap.pack(alt, v));
+                }
+            }
+        }
+    }
+
+    /**
+     * The shortest distance from every source to every target. Each source gets one search that
+     * stops once all targets are settled, instead of a search per pair.
+     */
+    public DistanceTable<T> distanceTable(Collection<T> sources, Collection<T> targets) {
+        List<T> sourceList = List.copyOf(sources);
+        List<T> targetList = List.copyOf(targets);
+        int columns = targetList.size();
+        int[] distances = DistanceTable.unreachable(sourceList.size(), columns);
+        int[] targetIds = new int[columns];
+        for (int j = 0; j < columns; j++) {
+            Integer id = ids.get(targetList.get(j));
+            targetIds[j] = id == null ? -1 : id;
+        }
+        int[] knownTargets = Arrays.stream(targetIds).filter(id -> id >= 0).toArray();
+        SearchWorkspace workspace = SearchWorkspace.acquire(nodes.length);
+        try {
+            for (int i = 0; i < sourceList.size(); i++) {
+                Integer source = ids.get(sourceList.get(i));
+                if (source == null) {
+                    continue;
+                }
+                workspace.clear();
+                searchAll(source, knownTargets, workspace);
+                for (int j = 0; j < columns; j++) {
+                    if (targetIds[j] >= 0) {
+                        distances[i * columns + j] = distanceIn(workspace, targetIds[j]);
+                    }
+                }
+            }
+        } finally {
+            workspace.release();
+        }
+        return new DistanceTable<>(sourceList, targetList, distances);
+    }
+
+    // The distance to target found by searchAll, or -1 if the search did not reach it.
+    int distanceIn(SearchWorkspace workspace, int target) {
+        return workspace.reached(target) ? workspace.dist[target] : -1;
+    }
+
+    // The path to target found by searchAll, or null if the search did not reach it.
+    List<Edge<T>> pathIn(SearchWorkspace workspace, int source, int target) {
+        if (!workspace.reached(target)) {
+            return null;
+        }
+        List<Edge<T>> path = new ArrayList<>();
+        for (int v = target; v != source; v = workspace.parent[v]) {
+            path.add(edge(workspace.parentSlot[v]));
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    public int nodeCount() {
+        return nodes.length;
+    }
+
+    public int edgeCount() {
+        return targets.length;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < nodes.length; i++) {
+            builder.append(node(i));
+            for (int e = offsets[i]; e < offsets[i + 1]; e++) {
+                builder.append(edge(e).toString());
+            }
+        }
+        return builder.toString();
+    }
+}
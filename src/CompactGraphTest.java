@@ -0,0 +1,117 @@
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CompactGraphTest {
+	private final ListGraph<String> source = new ListGraph<>();
+
+	@BeforeEach
+	void setUp() {
+		for (String node : new String[]{"A", "B", "C", "D", "E", "X"}) {
+			source.add(node);
+		}
+		source.connect("A", "B", "Train", 4);
+		source.connect("A", "C", "Train", 1);
+		source.connect("C", "B", "Boat", 2);
+		source.connect("B", "D", "Airplane", 5);
+		source.connect("D", "E", "Train", 3);
+	}
+
+	@Test
+	@DisplayName("Testar att ögonblicksbilden har samma noder och bågar som källan.")
+	void snapshotMatchesSource() {
+		var compact = new CompactGraph<>(source);
+
+		assertEquals(source.getNodes(), compact.getNodes());
+		assertEquals(10, compact.edgeCount());
+		for (String node : source.getNodes()) {
+			assertEquals(source.getEdgesFrom(node).size(), compact.getEdgesFrom(node).size());
+			assertEquals(compact.getEdgesFrom(node), List.copyOf(compact.getEdgesView(node)));
+		}
+		assertThrows(UnsupportedOperationException.class, () -> compact.getEdgesView("A").clear());
+		assertThrows(IndexOutOfBoundsException.class, () -> ((List<Edge<String>>) compact.getEdgesView("A")).get(2));
+		assertEquals("Boat", compact.getEdgeBetween("B", "C").getName());
+		assertNull(compact.getEdgeBetween("A", "D"));
+		assertThrows(NoSuchElementException.class, () -> compact.getEdgeBetween("A", "ZZZZ"));
+	}
+
+	@Test
+	@DisplayName("Testar vägsökning i ögonblicksbilden.")
+	void pathsMatchSource() {
+		var compact = new CompactGraph<>(source);
+
+		assertTrue(compact.pathExists("A", "E"));
+		assertFalse(compact.pathExists("A", "X"));
+		assertEquals(11, compact.getDistance("A", "E"));
+		assertEquals(-1, compact.getDistance("A", "X"));
+		assertNull(compact.getPath("A", "X"));
+
+		var path = compact.getPath("A", "E");
+		assertEquals(List.of("C", "B", "D", "E"), path.stream().map(Edge::getDestination).toList());
+	}
+
+	@Test
+	@DisplayName("Testar att ögonblicksbilden inte går att ändra.")
+	void snapshotIsReadOnly() {
+		var compact = new CompactGraph<>(source);
+
+		assertThrows(UnsupportedOperationException.class, () -> compact.add("F"));
+		assertThrows(UnsupportedOperationException.class, () -> compact.connect("A", "X", "Train", 1));
+		assertThrows(UnsupportedOperationException.class, () -> compact.setConnectionWeight("A", "B", 1));
+		assertThrows(UnsupportedOperationException.class, () -> compact.disconnect("A", "B"));
+		assertThrows(UnsupportedOperationException.class, () -> compact.remove("A"));
+
+		source.setConnectionWeight("A", "C", 50);
+		assertEquals(1, compact.getEdgeBetween("A", "C").getWeight(), "Fel: ögonblicksbilden ska inte påverkas av källan.");
+	}
+
+	@Test
+	@DisplayName("Testar att ändra många vikter på en gång via viktlistan.")
+	void bulkWeightsShareTopology() {
+		var compact = new CompactGraph<>(source);
+		int[] weights = compact.getWeights();
+		weights[compact.edgeSlot("C", "B")] = 20;
+		weights[compact.edgeSlot("B", "C")] = 20;
+		var updated = compact.withWeights(weights);
+
+		assertEquals(2, compact.getEdgeBetween("C", "B").getWeight(), "Fel: den gamla ögonblicksbilden ska inte ändras.");
+		assertEquals(20, updated.getEdgeBetween("C", "B").getWeight());
+		assertEquals(12, updated.getDistance("A", "E"));
+		assertEquals(-1, compact.edgeSlot("A", "D"));
+		assertThrows(IllegalArgumentException.class, () -> compact.withWeights(new int[3]));
+	}
+
+	@Test
+	@DisplayName("Testar att en båge hittas i en mängd även efter att vikten ändrats.")
+	void edgeIdentityIgnoresWeight() {
+		Edge<String> edge = source.getEdgeBetween("A", "B");
+		Set<Edge<String>> edges = new HashSet<>(source.getEdgesFrom("A"));
+		source.setConnectionWeight("A", "B", 40);
+
+		assertTrue(edges.contains(edge), "Fel: bågen ska inte byta identitet när vikten ändras.");
+		assertEquals(new Edge<>("B", "Train", 1), edge);
+		assertNotEquals(new Edge<>("B", "Boat", 40), edge);
+	}
+
+	@Test
+	@DisplayName("Testar att den billigaste av parallella förbindelser används i ögonblicksbilden.")
+	void parallelEdgesUseCheapest() {
+		source.connect("A", "B", "Airplane", 1);
+		source.connect("A", "B", "Bus", 9);
+		CompactGraph<String> snapshot = new CompactGraph<>(source);
+
+		assertEquals(4, snapshot.getEdgesFrom("A").size());
+		assertEquals("Airplane", snapshot.getEdgeBetween("A", "B").getName());
+		assertEquals("Airplane", snapshot.getEdgeBetween("B", "A").getName());
+		assertEquals(6, snapshot.getDistance("A", "D"));
+
+		int[] weights = new int[snapshot.edgeCount()];
+		Arrays.fill(weights, 1);
+		weights[snapshot.edgeSlot("A", "B")] = 0;
+		Edge<String> changed = snapshot.withWeights(weights).getEdgeBetween("A", "B");
+		assertEquals("Airplane", changed.getName(), "Fel: edgeSlot ska ge den billigaste förbindelsen.");
+		assertEquals(0, changed.getWeight());
+	}
+}
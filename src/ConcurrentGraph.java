@@ -0,0 +1,489 @@
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+
+/**
+ * A thread-safe {@link Graph} for many routing threads that share one graph while it is updated.
+ * <p>
+ * Writers lock stripes: every node hashes to one of a fixed set of locks. {@link #connect},
+ * {@link #disconnect} and {@link #setConnectionWeight} lock the stripes of both nodes, in stripe
+ * order so two writers cannot deadlock, and change both directions of the connection before
+ * they unlock, so writers never see a half-made connection. Writers on different stripes run in
+ * parallel. {@link #remove} touches every neighbour of a node and locks all stripes.
+ * <p>
+ * Reads take no locks at all. Both nodes of a connection share one link, which holds an
+ * immutable record of the edges in both directions. Every change, including making and removing
+ * the connection, publishes a new record with a single write, so a reader sees either both
+ * directions before the change or both after it; {@link #getConnection} returns the two from one
+ * read. An edge a reader holds never changes under it. A search that runs during updates sees
+ * some mix of old and new connections, but it never throws
+ * {@link ConcurrentModificationException}. Change weights through setConnectionWeight; calling
+ * {@link Edge#setWeight} on an edge of this graph bypasses the locks.
+ */
+public class ConcurrentGraph<T> implements Graph<T> {
+    private final ConcurrentHashMap<T, Vertex<T>> vertices = new ConcurrentHashMap<>();
+    private final ReentrantLock[] stripes;
+    // Ids index the pooled search arrays. Ids of removed nodes are reused, as in ListGraph, so the
+    // arrays stay as large as the graph and not as the number of nodes ever added. A search that
+    // runs across a remove tells the removed node and a new one with its id apart by the Vertex
+    // it stored for the id.
+    private final AtomicInteger nextId = new AtomicInteger();
+    private final Queue<Integer> freeIds = new ConcurrentLinkedQueue<>();
+    // Largest weight ever given through the graph; it picks the priority queue for Dijkstra.
+    private final AtomicInteger maxWeight = new AtomicInteger();
+    // Algorithm used by getPath and getDistance; null means the built-in Dijkstra.
+    private volatile PathSearch<T> pathSearch;
+
+    public ConcurrentGraph() {
+        this(4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    // concurrencyLevel is the number of writers expected at once; it is rounded up to a power of two.
+    public ConcurrentGraph(int concurrencyLevel) {
+        if (concurrencyLevel < 1) {
+            throw new IllegalArgumentException("The concurrency level must be positive");
+        }
+        int count = Integer.highestOneBit(Math.min(concurrencyLevel, 1 << 16) * 2 - 1);
+        stripes = new ReentrantLock[count];
+        for (int i = 0; i < count; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    private int stripe(Object node) {
+        int h = node.hashCode();
+        return (h ^ (h >>> 16)) & (stripes.length - 1);
+    }
+
+    // Locks the stripes of both nodes, the lower one first; returns them for unlock.
+    private ReentrantLock[] lock(T node1, T node2) {
+        int i = stripe(node1);
+        int j = stripe(node2);
+        ReentrantLock[] locks = i == j
+                ? new ReentrantLock[]{stripes[i]}
+                : new ReentrantLock[]{stripes[Math.min(i, j)], stripes[Math.max(i, j)]};
+        for (ReentrantLock lock : locks) {
+            lock.lock();
+        }
+        return locks;
+    }
+
+    private static void unlock(ReentrantLock[] locks) {
+        for (int i = locks.length - 1; i >= 0; i--) {
+            locks[i].unlock();
+        }
+    }
+
+    private Vertex<T> vertex(T node) {
+        Vertex<T> vertex = vertices.get(node);
+        if (vertex == null) {
+            throw new NoSuchElementException("The node is not found");
+        }
+        return vertex;
+    }
+
+    @Override
+    public void add(T node) {
+        vertices.computeIfAbsent(node, n -> {
+            Integer id = freeIds.poll();
+            return new Vertex<>(id != null ? id : nextId.getAndIncrement());
+        });
+    }
+
+    @Override
+    public void connect(T node1, T node2, String name, int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("The weight is negative");
+        }
+        ReentrantLock[] locks = lock(node1, node2);
+        try {
+            Vertex<T> vertex1 = vertex(node1);
+            Vertex<T> vertex2 = vertex(node2);
+            if (vertex1.edges.containsKey(node2) || vertex2.edges.containsKey(node1)) {
+                throw new IllegalStateException("The edge already exists");
+            }
+            // Readers skip the link until the connection is set
+            Link<T> link = new Link<>(vertex1, node1, node2);
+            vertex1.edges.put(node2, link);
+            vertex2.edges.put(node1, link);
+            link.set(name, weight);
+        } finally {
+            unlock(locks);
+        }
+        maxWeight.accumulateAndGet(weight, Math::max);
+    }
+
+    @Override
+    public void setConnectionWeight(T node1, T node2, int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("The weight is negative");
+        }
+        ReentrantLock[] locks = lock(node1, node2);
+        try {
+            Vertex<T> vertex1 = vertex(node1);
+            vertex(node2);
+            Link<T> link = vertex1.edges.get(node2);
+            if (link == null) {
+                throw new NullPointerException();
+            }
+            link.set(link.connection.name(), weight);
+        } finally {
+            unlock(locks);
+        }
+        maxWeight.accumulateAndGet(weight, Math::max);
+    }
+
+    @Override
+    public void disconnect(T node1, T node2) {
+        ReentrantLock[] locks = lock(node1, node2);
+        try {
+            Vertex<T> vertex1 = vertex(node1);
+            Vertex<T> vertex2 = vertex(node2);
+            Link<T> link = vertex1.edges.get(node2);
+            if (link == null) {
+                throw new IllegalStateException();
+            }
+            link.connection = null;
+            vertex1.edges.remove(node2);
+            vertex2.edges.remove(node1);
+        } finally {
+            unlock(locks);
+        }
+    }
+
+    // Removing a node changes the edges of all its neighbours, so it takes every stripe.
+    @Override
+    public void remove(T node) {
+        for (ReentrantLock lock : stripes) {
+            lock.lock();
+        }
+        try {
+            Vertex<T> vertex = vertices.remove(node);
+            if (vertex == null) {
+                throw new NoSuchElementException("The node is not found");
+            }
+            for (Map.Entry<T, Link<T>> link : vertex.edges.entrySet()) {
+                link.getValue().connection = null;
+                Vertex<T> neighbour = vertices.get(link.getKey());
+                // null for a loop from the node to itself
+                if (neighbour != null) {
+                    neighbour.edges.remove(node);
+                }
+            }
+            freeIds.add(vertex.id);
+        } finally {
+            for (int i = stripes.length - 1; i >= 0; i--) {
+                stripes[i].unlock();
+            }
+        }
+    }
+
+    @Override
+    public Set<T> getNodes() {
+        return Collections.unmodifiableSet(vertices.keySet());
+    }
+
+    @Override
+    public Collection<Edge<T>> getEdgesFrom(T node) {
+        return Set.copyOf(getEdgesView(node));
+    }
+
+    // A live view that never throws ConcurrentModificationException, but may or may not show
+    // changes made while it is iterated.
+    @Override
+    public Collection<Edge<T>> getEdgesView(T node) {
+        Vertex<T> vertex = vertex(node);
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Edge<T>> iterator() {
+                return new EdgeIterator<>(vertex);
+            }
+
+            @Override
+            public int size() {
+                int size = 0;
+                for (Link<T> link : vertex.edges.values()) {
+                    size += link.connection != null ? 1 : 0;
+                }
+                return size;
+            }
+        };
+    }
+
+    @Override
+    public void forEachEdge(T node, Consumer<? super Edge<T>> action) {
+        Vertex<T> vertex = vertex(node);
+        for (Link<T> link : vertex.edges.values()) {
+            Edge<T> edge = link.from(vertex);
+            if (edge != null) {
+                action.accept(edge);
+            }
+        }
+    }
+
+    @Override
+    public Collection<Map.Entry<T, Edge<T>>> getEdgesTo(T node) {
+        Vertex<T> vertex = vertex(node);
+        List<Map.Entry<T, Edge<T>>> edges = new ArrayList<>();
+        for (Map.Entry<T, Link<T>> link : vertex.edges.entrySet()) {
+            Edge<T> edge = link.getValue().into(vertex);
+            if (edge != null) {
+                edges.add(Map.entry(link.getKey(), edge));
+            }
+        }
+        return edges;
+    }
+
+    @Override
+    public Edge<T> getEdgeBetween(T node1, T node2) {
+        Vertex<T> vertex1 = vertex(node1);
+        vertex(node2);
+        Link<T> link = vertex1.edges.get(node2);
+        return link == null ? null : link.from(vertex1);
+    }
+
+    /**
+     * The edge from node1 to node2 and the edge back, read together so that they always have the
+     * same weight, or null if the nodes are not connected. Two calls to getEdgeBetween can see
+     * different versions of the connection when it changes in between.
+     */
+    public Pair<Edge<T>, Edge<T>> getConnection(T node1, T node2) {
+        Vertex<T> vertex1 = vertex(node1);
+        vertex(node2);
+        Link<T> link = vertex1.edges.get(node2);
+        Connection<T> connection = link == null ? null : link.connection;
+        if (connection == null) {
+            return null;
+        }
+        return link.first == vertex1
+                ? new Pair<>(connection.fromFirst(), connection.fromSecond())
+                : new Pair<>(connection.fromSecond(), connection.fromFirst());
+    }
+
+    @Override
+    public boolean pathExists(T from, T to) {
+        Vertex<T> source = vertices.get(from);
+        Vertex<T> target = vertices.get(to);
+        if (source == null || target == null) {
+            return false;
+        }
+        // Nodes added after this point have ids beyond the workspace and are not visited
+        int limit = nextId.get();
+        SearchWorkspace workspace = SearchWorkspace.acquire(limit);
+        try {
+            int[] queue = workspace.queue;
+            int head = 0;
+            int tail = 0;
+            workspace.reach(source.id, 0, source.id, null);
+            workspace.node[source.id] = source;
+            queue[tail++] = source.id;
+            while (head < tail) {
+                int node = queue[head++];
+                if (node == target.id && vertexAt(workspace, node) == target) {
+                    return true;
+                }
+                for (Map.Entry<T, Link<T>> link : vertexAt(workspace, node).edges.entrySet()) {
+                    if (link.getValue().connection == null) {
+                        continue;
+                    }
+                    Vertex<T> next = vertices.get(link.getKey());
+                    // Reached ids are skipped, also one that a new node reused after a remove
+                    if (next != null && next.id < limit && !workspace.reached(next.id)) {
+                        workspace.reach(next.id, 0, node, null);
+                        workspace.node[next.id] = next;
+                        queue[tail++] = next.id;
+                    }
+                }
+            }
+            return false;
+        } finally {
+            workspace.release();
+        }
+    }
+
+    public void setPathSearch(PathSearch<T> pathSearch) {
+        this.pathSearch = pathSearch;
+    }
+
+    @Override
+    public List<Edge<T>> getPath(T from, T to) {
+        PathSearch<T> search = pathSearch;
+        if (search != null) {
+            return search.getPath(this, from, to);
+        }
+        Vertex<T> source = vertices.get(from);
+        Vertex<T> target = vertices.get(to);
+        if (source == null || target == null) {
+            return null;
+        }
+        int limit = nextId.get();
+        SearchWorkspace workspace = SearchWorkspace.acquire(limit);
+        try {
+            if (search(source, target, limit, workspace) < 0) {
+                return null;
+            }
+            List<Edge<T>> path = new ArrayList<>();
+            for (int node = target.id; node != source.id; node = workspace.parent[node]) {
+                path.add(edgeTo(workspace, node));
+            }
+            Collections.reverse(path);
+            return path;
+        } finally {
+            workspace.release();
+        }
+    }
+
+    @Override
+    public int getDistance(T from, T to) {
+        PathSearch<T> search = pathSearch;
+        if (search != null) {
+            return search.getDistance(this, from, to);
+        }
+        Vertex<T> source = vertices.get(from);
+        Vertex<T> target = vertices.get(to);
+        if (source == null || target == null) {
+            return -1;
+        }
+        int limit = nextId.get();
+        SearchWorkspace workspace = SearchWorkspace.acquire(limit);
+        try {
+            return search(source, target, limit, workspace);
+        } finally {
+            workspace.release();
+        }
+    }
+
+    // Dijkstra that stops once target is settled, or -1. Every edge is read once, so a weight
+    // that changes during the search is seen either before or after the change.
+    private int search(Vertex<T> source, Vertex<T> target, int limit, SearchWorkspace workspace) {
+        LongPriorityQueue queue = workspace.priorityQueue(maxWeight.get());
+        workspace.reach(source.id, 0, source.id, null);
+        workspace.node[source.id] = source;
+        queue.add(LongMinHeap.pack(0, source.id));
+        while (!queue.isEmpty()) {
+            long entry = queue.poll();
+            int node = LongMinHeap.node(entry);
+            int distance = LongMinHeap.distance(entry);
+            if (distance > workspace.dist[node]) {
+                continue;
+            }
+            if (node == target.id && vertexAt(workspace, node) == target) {
+                return distance;
+            }
+            Vertex<T> vertex = vertexAt(workspace, node);
+            for (Link<T> link : vertex.edges.values()) {
+                Edge<T> edge = link.from(vertex);
+                Vertex<T> next = edge == null ? null : vertices.get(edge.getDestination());
+                if (next == null || next.id >= limit
+                        || workspace.reached(next.id) && vertexAt(workspace, next.id) != next) {
+                    // Missing, added after the search started, or a new node with a reused id
+                    continue;
+                }
+                int altDistance = distance + edge.getWeight();
+                if (!workspace.reached(next.id) || altDistance < workspace.dist[next.id]) {
+                    workspace.reach(next.id, altDistance, node, edge);
+                    workspace.node[next.id] = next;
+                    queue.add(LongMinHeap.pack(altDistance, next.id));
+                }
+            }
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Vertex<T> vertexAt(SearchWorkspace workspace, int id) {
+        return (Vertex<T>) workspace.node[id];
+    }
+
+    @SuppressWarnings("unchecked")
+    private Edge<T> edgeTo(SearchWorkspace workspace, int node) {
+        return (Edge<T>) workspace.parentEdge[node];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<T, Vertex<T>> node : vertices.entrySet()) {
+            builder.append(node.getKey());
+            forEachEdge(node.getKey(), edge -> builder.append(edge.toString()));
+        }
+        return builder.toString();
+    }
+
+    private static final class Vertex<T> {
+        private final int id;
+        // The connections of the node, keyed by the node at the other end.
+        private final ConcurrentHashMap<T, Link<T>> edges = new ConcurrentHashMap<>(4);
+
+        private Vertex(int id) {
+            this.id = id;
+        }
+    }
+
+    // A connection as seen from both its nodes. It is replaced as a whole, never changed.
+    private record Connection<T>(String name, Edge<T> fromFirst, Edge<T> fromSecond) {
+    }
+
+    // Shared by the maps of both nodes of a connection; null while it is made or removed.
+    private static final class Link<T> {
+        private final Vertex<T> first;
+        private final T firstNode;
+        private final T secondNode;
+        private volatile Connection<T> connection;
+
+        private Link(Vertex<T> first, T firstNode, T secondNode) {
+            this.first = first;
+            this.firstNode = firstNode;
+            this.secondNode = secondNode;
+        }
+
+        private void set(String name, int weight) {
+            connection = new Connection<>(name, new Edge<>(secondNode, name, weight), new Edge<>(firstNode, name, weight));
+        }
+
+        // The edge from the vertex to the other end, or null.
+        private Edge<T> from(Vertex<T> vertex) {
+            Connection<T> current = connection;
+            return current == null ? null : vertex == first ? current.fromFirst() : current.fromSecond();
+        }
+
+        // The edge from the other end to the vertex, or null.
+        private Edge<T> into(Vertex<T> vertex) {
+            Connection<T> current = connection;
+            return current == null ? null : vertex == first ? current.fromSecond() : current.fromFirst();
+        }
+    }
+
+    // The edges of a vertex, skipping links that are being made or removed.
+    private static final class EdgeIterator<T> implements Iterator<Edge<T>> {
+        private final Vertex<T> vertex;
+        private final Iterator<Link<T>> links;
+        private Edge<T> next;
+
+        private EdgeIterator(Vertex<T> vertex) {
+            this.vertex = vertex;
+            this.links = vertex.edges.values().iterator();
+        }
+
+        @Override
+        public boolean hasNext() {
+            while (next == null && links.hasNext()) {
+                next = links.next().from(vertex);
+            }
+            return next != null;
+        }
+
+        @Override
+        public Edge<T> next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            Edge<T> edge = next;
+            next = null;
+            return edge;
+        }
+    }
+}
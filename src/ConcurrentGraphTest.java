@@ -0,0 +1,189 @@
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentGraphTest {
+	private static final int SIZE = 12;
+
+	// Ett rutnät där noden i har koordinaterna (i % SIZE, i / SIZE) och varje båge kostar 1 till 9.
+	private final ConcurrentGraph<Integer> graph = new ConcurrentGraph<>(4);
+	private final ListGraph<Integer> reference = new ListGraph<>();
+
+	@BeforeEach
+	void setUp() {
+		Random random = new Random(11);
+		for (int i = 0; i < SIZE * SIZE; i++) {
+			graph.add(i);
+			reference.add(i);
+		}
+		for (int i = 0; i < SIZE * SIZE; i++) {
+			if (i % SIZE < SIZE - 1) {
+				int weight = 1 + random.nextInt(9);
+				graph.connect(i, i + 1, i + " - " + (i + 1), weight);
+				reference.connect(i, i + 1, i + " - " + (i + 1), weight);
+			}
+			if (i / SIZE < SIZE - 1) {
+				int weight = 1 + random.nextInt(9);
+				graph.connect(i, i + SIZE, i + " - " + (i + SIZE), weight);
+				reference.connect(i, i + SIZE, i + " - " + (i + SIZE), weight);
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("Testar att ConcurrentGraph beter sig som ListGraph i en tråd.")
+	void behavesLikeListGraph() {
+		assertThrows(IllegalStateException.class, () -> graph.connect(0, 1, "0 - 1", 3));
+		assertThrows(NoSuchElementException.class, () -> graph.connect(0, -1, "0 - -1", 3));
+		assertThrows(IllegalArgumentException.class, () -> graph.connect(0, SIZE + 1, "diagonal", -1));
+		assertThrows(NullPointerException.class, () -> graph.setConnectionWeight(0, SIZE + 1, 2));
+
+		graph.setConnectionWeight(0, 1, 20);
+		reference.setConnectionWeight(0, 1, 20);
+		assertEquals(20, graph.getEdgeBetween(1, 0).getWeight());
+		graph.disconnect(SIZE, SIZE + 1);
+		reference.disconnect(SIZE, SIZE + 1);
+		assertThrows(IllegalStateException.class, () -> graph.disconnect(SIZE + 1, SIZE));
+		graph.remove(SIZE * 2 + 2);
+		reference.remove(SIZE * 2 + 2);
+		assertThrows(NoSuchElementException.class, () -> graph.getEdgesFrom(SIZE * 2 + 2));
+		assertEquals(3, graph.getEdgesFrom(SIZE * 2 + 1).size());
+
+		for (int from = 0; from < SIZE * SIZE; from += 7) {
+			for (int to = 0; to < SIZE * SIZE; to += 5) {
+				assertEquals(reference.getDistance(from, to), graph.getDistance(from, to), "Fel avstånd mellan " + from + " och " + to);
+				assertEquals(reference.pathExists(from, to), graph.pathExists(from, to));
+			}
+		}
+		graph.setPathSearch(new BidirectionalSearch<>());
+		assertEquals(reference.getDistance(0, SIZE * SIZE - 1), graph.getDistance(0, SIZE * SIZE - 1));
+	}
+
+	@Test
+	@DisplayName("Testar att läsare och skrivare kan arbeta samtidigt och att båda riktningarna ändras tillsammans.")
+	void concurrentReadersAndWriters() throws Exception {
+		// Den översta raden och alla kolumner ändras aldrig, så det finns alltid en väg
+		int upperBound = 9 * 2 * (SIZE - 1);
+		ExecutorService executor = Executors.newFixedThreadPool(6);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int writer = 0; writer < 3; writer++) {
+				Random random = new Random(writer);
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < 3000; i++) {
+						int node = SIZE + random.nextInt(SIZE * (SIZE - 1));
+						int neighbour = node % SIZE < SIZE - 1 ? node + 1 : node - 1;
+						try {
+							switch (random.nextInt(3)) {
+								case 0 -> graph.setConnectionWeight(node, neighbour, 1 + random.nextInt(9));
+								case 1 -> graph.disconnect(node, neighbour);
+								default -> graph.connect(node, neighbour, "ny", 1 + random.nextInt(9));
+							}
+						} catch (IllegalStateException | NullPointerException e) {
+							// Någon annan skrivare hann före
+						}
+					}
+				}));
+			}
+			for (int reader = 0; reader < 3; reader++) {
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < 300; i++) {
+						int distance = graph.getDistance(0, SIZE * SIZE - 1);
+						assertTrue(distance > 0 && distance <= upperBound, "Fel: orimligt avstånd " + distance);
+						List<Edge<Integer>> path = graph.getPath(SIZE - 1, SIZE * (SIZE - 1));
+						assertEquals(SIZE * (SIZE - 1), path.get(path.size() - 1).getDestination());
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get(60, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+
+		for (int node = 0; node < SIZE * SIZE; node++) {
+			for (Edge<Integer> edge : graph.getEdgesFrom(node)) {
+				Edge<Integer> back = graph.getEdgeBetween(edge.getDestination(), node);
+				assertNotNull(back, "Fel: bågen tillbaka saknas.");
+				assertEquals(edge.getWeight(), back.getWeight(), "Fel: riktningarna har olika vikt.");
+				assertEquals(edge.getName(), back.getName());
+			}
+		}
+	}
+
+	@Test
+	@DisplayName("Testar att läsare alltid ser båda riktningarna av en förbindelse med samma vikt.")
+	void readersSeeBothDirectionsTogether() throws Exception {
+		ExecutorService executor = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int writer = 0; writer < 2; writer++) {
+				Random random = new Random(writer);
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < 20_000; i++) {
+						int node = random.nextInt(SIZE - 1);
+						try {
+							switch (random.nextInt(4)) {
+								case 0 -> graph.disconnect(node, node + 1);
+								case 1 -> graph.connect(node, node + 1, "ny", 1 + random.nextInt(9));
+								default -> graph.setConnectionWeight(node, node + 1, 1 + random.nextInt(1000));
+							}
+						} catch (IllegalStateException | NullPointerException e) {
+							// Någon annan skrivare hann före
+						}
+					}
+				}));
+			}
+			for (int reader = 0; reader < 2; reader++) {
+				Random random = new Random(10 + reader);
+				futures.add(executor.submit(() -> {
+					for (int i = 0; i < 20_000; i++) {
+						int node = random.nextInt(SIZE - 1);
+						Pair<Edge<Integer>, Edge<Integer>> connection = graph.getConnection(node + 1, node);
+						if (connection != null) {
+							assertEquals(connection.first().getWeight(), connection.second().getWeight(), "Fel: riktningarna har olika vikt.");
+							assertEquals(connection.first().getName(), connection.second().getName());
+							assertEquals(node, connection.first().getDestination());
+							assertEquals(node + 1, connection.second().getDestination());
+						}
+					}
+				}));
+			}
+			for (Future<?> future : futures) {
+				future.get(60, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+		assertNull(graph.getConnection(0, SIZE + 1));
+	}
+
+	@Test
+	@DisplayName("Testar att sökningar stämmer när noder tas bort och läggs till igen så att deras id återanvänds.")
+	void searchesAfterRemoveAndAdd() {
+		Random random = new Random(5);
+		for (int round = 0; round < 200; round++) {
+			int node = SIZE + 1 + random.nextInt(SIZE * (SIZE - 2) - 2);
+			graph.remove(node);
+			reference.remove(node);
+			graph.add(node);
+			reference.add(node);
+			for (int neighbour : new int[] {node - 1, node + 1, node - SIZE, node + SIZE}) {
+				if (reference.getEdgeBetween(node, neighbour) == null) {
+					int weight = 1 + random.nextInt(9);
+					graph.connect(node, neighbour, node + " - " + neighbour, weight);
+					reference.connect(node, neighbour, node + " - " + neighbour, weight);
+				}
+			}
+			int from = random.nextInt(SIZE * SIZE);
+			int to = random.nextInt(SIZE * SIZE);
+			assertEquals(reference.getDistance(from, to), graph.getDistance(from, to), "Fel avstånd mellan " + from + " och " + to);
+			assertEquals(reference.getDistance(from, node), graph.getDistance(from, node));
+			assertTrue(graph.pathExists(node, to));
+		}
+	}
+}
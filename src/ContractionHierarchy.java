@@ -0,0 +1,561 @@
+import java.util.*;
+
+/**
+ * A Contraction Hierarchies index over a {@link Graph}, for fast shortest path queries on a
+ * graph whose topology rarely changes.
+ * <p>
+ * Preprocessing removes ("contracts") the nodes one at a time, cheapest first, and adds a
+ * shortcut arc u -> x of weight w(u, v) + w(v, x) whenever the contracted node v was on the only
+ * shortest path from u to x. Every arc then points either up or down in the contraction order,
+ * and a query only has to run Dijkstra upwards from both ends until the searches meet.
+ * Shortcuts remember the two arcs they replace, so a path is unpacked into the original
+ * {@link Edge} objects of the graph.
+ * <p>
+ * The index is a snapshot of the weights at construction time. Build a new one after the graph
+ * or its weights have changed.
+ */
+public class ContractionHierarchy<T> {
+    // How many nodes a witness search may settle before it gives up and a shortcut is added.
+    private static final int WITNESS_SETTLE_LIMIT = 500;
+
+    private final Object[] nodes;
+    private final Map<T, Integer> ids;
+    private final int[] rank;
+
+    // Every arc, original or shortcut. Shortcuts replace arcFirst followed by arcSecond.
+    private final int[] arcFrom;
+    private final int[] arcTo;
+    private final int[] arcFirst;
+    private final int[] arcSecond;
+    private final Object[] arcEdge;
+
+    // Upward arcs for the forward search: from a node to higher ranked nodes.
+    private final int[] upOffsets;
+    private final int[] upTargets;
+    private final int[] upWeights;
+    private final int[] upArcs;
+    // Upward arcs for the backward search: arcs into a node from higher ranked nodes, reversed.
+    private final int[] downOffsets;
+    private final int[] downTargets;
+    private final int[] downWeights;
+    private final int[] downArcs;
+
+    public ContractionHierarchy(Graph<T> graph) {
+        int n = graph.getNodes().size();
+        nodes = new Object[n];
+        ids = new HashMap<>(n * 2);
+        int next = 0;
+        for (T node : graph.getNodes()) {
+            ids.put(node, next);
+            nodes[next++] = node;
+        }
+
+        Contraction contraction = new Contraction(n);
+        for (int u = 0; u < n; u++) {
+            for (Edge<T> edge : graph.getEdgesFrom(node(u))) {
+                contraction.addArc(u, ids.get(edge.getDestination()), edge.getWeight(), -1, -1, edge);
+            }
+        }
+        rank = contraction.contractAll();
+
+        int arcs = contraction.weight.size();
+        arcFrom = contraction.from.toArray();
+        arcTo = contraction.to.toArray();
+        arcFirst = contraction.first.toArray();
+        arcSecond = contraction.second.toArray();
+        arcEdge = contraction.edges.toArray();
+        int[] weights = contraction.weight.toArray();
+
+        upOffsets = new int[n + 1];
+        downOffsets = new int[n + 1];
+        for (int a = 0; a < arcs; a++) {
+            if (rank[arcFrom[a]] < rank[arcTo[a]]) {
+                upOffsets[arcFrom[a] + 1]++;
+            } else {
+                downOffsets[arcTo[a] + 1]++;
+            }
+        }
+        for (int v = 0; v < n; v++) {
+            upOffsets[v + 1] += upOffsets[v];
+            downOffsets[v + 1] += downOffsets[v];
+        }
+        upTargets = new int[upOffsets[n]];
+        upWeights = new int[upOffsets[n]];
+        upArcs = new int[upOffsets[n]];
+        downTargets = new int[downOffsets[n]];
+        downWeights = new int[downOffsets[n]];
+        downArcs = new int[downOffsets[n]];
+        int[] upFill = Arrays.copyOf(upOffsets, n);
+        int[] downFill = Arrays.copyOf(downOffsets, n);
+        for (int a = 0; a < arcs; a++) {
+            if (rank[arcFrom[a]] < rank[arcTo[a]]) {
+                int slot = upFill[arcFrom[a]]++;
+                upTargets[slot] = arcTo[a];
+                upWeights[slot] = weights[a];
+                upArcs[slot] = a;
+            } else {
+                int slot = downFill[arcTo[a]]++;
+                downTargets[slot] = arcFrom[a];
+                downWeights[slot] = weights[a];
+                downArcs[slot] = a;
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private T node(int id) {
+        return (T) nodes[id];
+    }
+
+    public int getDistance(T from, T to) {
+        Integer source = ids.get(from);
+        Integer target = ids.get(to);
+        if (source == null || target == null) {
+            return -1;
+        }
+        Query query = Query.acquire(nodes.length);
+        return query.run(this, source, target) < 0 ? -1 : query.best;
+    }
+
+    public List<Edge<T>> getPath(T from, T to) {
+        Integer source = ids.get(from);
+        Integer target = ids.get(to);
+        if (source == null || target == null) {
+            return null;
+        }
+        Query query = Query.acquire(nodes.length);
+        int meeting = query.run(this, source, target);
+        if (meeting < 0) {
+            return null;
+        }
+        IntArrayList upward = new IntArrayList();
+        for (int v = meeting; v != source; v = arcFrom[query.forwardArc[v]]) {
+            upward.add(query.forwardArc[v]);
+        }
+        List<Edge<T>> path = new ArrayList<>();
+        for (int i = upward.size() - 1; i >= 0; i--) {
+            unpack(upward.get(i), path);
+        }
+        for (int v = meeting; v != target; v = arcTo[query.backwardArc[v]]) {
+            unpack(query.backwardArc[v], path);
+        }
+        return path;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void unpack(int arc, List<Edge<T>> path) {
+        IntArrayList stack = new IntArrayList();
+        stack.add(arc);
+        while (!stack.isEmpty()) {
+            int a = stack.get(stack.size() - 1);
+            stack.removeAtUnordered(stack.size() - 1);
+            if (arcFirst[a] < 0) {
+                path.add((Edge<T>) arcEdge[a]);
+            } else {
+                stack.add(arcSecond[a]);
+                stack.add(arcFirst[a]);
+            }
+        }
+    }
+
+    /**
+     * The shortest distance from every source to every target, with the bucket method for many
+     * to many queries. A backward upward search from each target leaves (target, distance) in a
+     * bucket at every node it settles; a forward upward search from each source then combines
+     * its own distances with the buckets of the nodes it settles. That is one small search per
+     * source and per target instead of a query per pair.
+     */
+    public DistanceTable<T> distanceTable(Collection<T> sources, Collection<T> targets) {
+        List<T> sourceList = List.copyOf(sources);
+        List<T> targetList = List.copyOf(targets);
+        int columns = targetList.size();
+        int[] distances = DistanceTable.unreachable(sourceList.size(), columns);
+        Query query = Query.acquire(nodes.length);
+        IntArrayList settled = new IntArrayList();
+        IntArrayList settledDist = new IntArrayList();
+
+        // Buckets in compressed form: the entries of node v are bucketOffsets[v] .. bucketOffsets[v + 1] - 1
+        IntArrayList entryNode = new IntArrayList();
+        IntArrayList entryTarget = new IntArrayList();
+        IntArrayList entryDist = new IntArrayList();
+        for (int j = 0; j < columns; j++) {
+            Integer target = ids.get(targetList.get(j));
+            if (target == null) {
+                continue;
+            }
+            query.exhaust(this, target, false, settled, settledDist);
+            for (int k = 0; k < settled.size(); k++) {
+                entryNode.add(settled.get(k));
+                entryTarget.add(j);
+                entryDist.add(settledDist.get(k));
+            }
+        }
+        int n = nodes.length;
+        int[] bucketOffsets = new int[n + 1];
+        for (int k = 0; k < entryNode.size(); k++) {
+            bucketOffsets[entryNode.get(k) + 1]++;
+        }
+        for (int v = 0; v < n; v++) {
+            bucketOffsets[v + 1] += bucketOffsets[v];
+        }
+        int[] bucketTargets = new int[entryNode.size()];
+        int[] bucketDist = new int[entryNode.size()];
+        int[] fill = Arrays.copyOf(bucketOffsets, n);
+        for (int k = 0; k < entryNode.size(); k++) {
+            int slot = fill[entryNode.get(k)]++;
+            bucketTargets[slot] = entryTarget.get(k);
+            bucketDist[slot] = entryDist.get(k);
+        }
+
+        for (int i = 0; i < sourceList.size(); i++) {
+            Integer source = ids.get(sourceList.get(i));
+            if (source == null) {
+                continue;
+            }
+            query.exhaust(this, source, true, settled, settledDist);
+            int row = i * columns;
+            for (int k = 0; k < settled.size(); k++) {
+                int v = settled.get(k);
+                int d = settledDist.get(k);
+                for (int b = bucketOffsets[v]; b < bucketOffsets[v + 1]; b++) {
+                    int cell = row + bucketTargets[b];
+                    int alt = d + bucketDist[b];
+                    if (distances[cell] < 0 || alt < distances[cell]) {
+                        distances[cell] = alt;
+                    }
+                }
+            }
+        }
+        return new DistanceTable<>(sourceList, targetList, distances);
+    }
+
+    public int shortcutCount() {
+        int count = 0;
+        for (int first : arcFirst) {
+            if (first >= 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Search state for one thread, shared by all hierarchies and grown to the largest of them.
+    // It holds no reference to a hierarchy, so the pool does not keep discarded ones alive.
+    // Arrays are reset in O(1) by bumping the generation.
+    private static final class Query {
+        private static final ThreadLocal<Query> POOL = ThreadLocal.withInitial(Query::new);
+
+        private int[] forwardDist = new int[0];
+        private int[] backwardDist = new int[0];
+        private int[] forwardArc = new int[0];
+        private int[] backwardArc = new int[0];
+        private int[] forwardSeen = new int[0];
+        private int[] backwardSeen = new int[0];
+        private final LongMinHeap forwardHeap = new LongMinHeap();
+        private final LongMinHeap backwardHeap = new LongMinHeap();
+        private int generation;
+        private int best;
+
+        private static Query acquire(int n) {
+            Query query = POOL.get();
+            if (query.forwardSeen.length < n) {
+                query.forwardDist = new int[n];
+                query.backwardDist = new int[n];
+                query.forwardArc = new int[n];
+                query.backwardArc = new int[n];
+                query.forwardSeen = new int[n];
+                query.backwardSeen = new int[n];
+                query.generation = 0;
+            }
+            return query;
+        }
+
+        // Returns the highest node on the shortest path, or -1 if there is no path.
+        private int run(ContractionHierarchy<?> hierarchy, int source, int target) {
+            nextGeneration();
+            forwardHeap.clear();
+            backwardHeap.clear();
+            best = Integer.MAX_VALUE;
+            int meeting = -1;
+            reach(forwardSeen, forwardDist, forwardArc, forwardHeap, source, 0, -1);
+            reach(backwardSeen, backwardDist, backwardArc, backwardHeap, target, 0, -1);
+
+            boolean forwardTurn = true;
+            while (true) {
+                boolean forwardDone = forwardHeap.isEmpty() || LongMinHeap.distance(forwardHeap.peek()) >= best;
+                boolean backwardDone = backwardHeap.isEmpty() || LongMinHeap.distance(backwardHeap.peek()) >= best;
+                if (forwardDone && backwardDone) {
+                    return meeting;
+                }
+                boolean forward = backwardDone || (!forwardDone && forwardTurn);
+                forwardTurn = !forwardTurn;
+
+                LongMinHeap heap = forward ? forwardHeap : backwardHeap;
+                int[] dist = forward ? forwardDist : backwardDist;
+                long entry = heap.poll();
+                int u = LongMinHeap.node(entry);
+                int d = LongMinHeap.distance(entry);
+                if (d > dist[u]) {
+                    continue;
+                }
+                int[] otherSeen = forward ? backwardSeen : forwardSeen;
+                int[] otherDist = forward ? backwardDist : forwardDist;
+                if (otherSeen[u] == generation && d + otherDist[u] < best) {
+                    best = d + otherDist[u];
+                    meeting = u;
+                }
+                int[] offsets = forward ? hierarchy.upOffsets : hierarchy.downOffsets;
+                int[] targets = forward ? hierarchy.upTargets : hierarchy.downTargets;
+                int[] weights = forward ? hierarchy.upWeights : hierarchy.downWeights;
+                int[] arcs = forward ? hierarchy.upArcs : hierarchy.downArcs;
+                for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                    if (forward) {
+                        reach(forwardSeen, forwardDist, forwardArc, forwardHeap, targets[e], d + weights[e], arcs[e]);
+                    } else {
+                        reach(backwardSeen, backwardDist, backwardArc, backwardHeap, targets[e], d + weights[e], arcs[e]);
+                    }
+                }
+            }
+        }
+
+        // Runs one side of a query to the end and lists the nodes it settles with their distances.
+        private void exhaust(ContractionHierarchy<?> hierarchy, int start, boolean forward, IntArrayList settled, IntArrayList settledDist) {
+            nextGeneration();
+            settled.clear();
+            settledDist.clear();
+            int[] seen = forward ? forwardSeen : backwardSeen;
+            int[] dist = forward ? forwardDist : backwardDist;
+            int[] parentArc = forward ? forwardArc : backwardArc;
+            LongMinHeap heap = forward ? forwardHeap : backwardHeap;
+            int[] offsets = forward ? hierarchy.upOffsets : hierarchy.downOffsets;
+            int[] targets = forward ? hierarchy.upTargets : hierarchy.downTargets;
+            int[] weights = forward ? hierarchy.upWeights : hierarchy.downWeights;
+            int[] arcs = forward ? hierarchy.upArcs : hierarchy.downArcs;
+            heap.clear();
+            reach(seen, dist, parentArc, heap, start, 0, -1);
+            while (!heap.isEmpty()) {
+                long entry = heap.poll();
+                int u = LongMinHeap.node(entry);
+                int d = LongMinHeap.distance(entry);
+                if (d > dist[u]) {
+                    continue;
+                }
+                settled.add(u);
+                settledDist.add(d);
+                for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                    reach(seen, dist, parentArc, heap, targets[e], d + weights[e], arcs[e]);
+                }
+            }
+        }
+
+        private void nextGeneration() {
+            if (++generation == 0) {
+                // The counter wrapped around, so old stamps could look current
+                Arrays.fill(forwardSeen, 0);
+                Arrays.fill(backwardSeen, 0);
+                generation = 1;
+            }
+        }
+
+        private void reach(int[] seen, int[] dist, int[] parentArc, LongMinHeap heap, int v, int d, int arc) {
+            if (seen[v] != generation || d < dist[v]) {
+                seen[v] = generation;
+                dist[v] = d;
+                parentArc[v] = arc;
+                heap.add(LongMinHeap.pack(d, v));
+            }
+        }
+    }
+
+    // Temporary state used while the hierarchy is built.
+    private static class Contraction {
+        private final IntArrayList from = new IntArrayList();
+        private final IntArrayList to = new IntArrayList();
+        private final IntArrayList weight = new IntArrayList();
+        private final IntArrayList first = new IntArrayList();
+        private final IntArrayList second = new IntArrayList();
+        private final List<Object> edges = new ArrayList<>();
+
+        private final IntArrayList[] out;
+        private final IntArrayList[] in;
+        private final boolean[] contracted;
+        private final int[] contractedNeighbours;
+        private final int[] level;
+
+        private final int[] witnessDist;
+        private final int[] witnessSeen;
+        private final LongMinHeap witnessHeap = new LongMinHeap();
+        private int witnessGeneration;
+
+        private Contraction(int n) {
+            out = new IntArrayList[n];
+            in = new IntArrayList[n];
+            for (int v = 0; v < n; v++) {
+                out[v] = new IntArrayList();
+                in[v] = new IntArrayList();
+            }
+            contracted = new boolean[n];
+            contractedNeighbours = new int[n];
+            level = new int[n];
+            witnessDist = new int[n];
+            witnessSeen = new int[n];
+        }
+
+        private void addArc(int u, int v, int w, int firstArc, int secondArc, Object edge) {
+            if (u == v) {
+                return;
+            }
+            for (int i = 0; i < out[u].size(); i++) {
+                int a = out[u].get(i);
+                if (to.get(a) == v) {
+                    if (weight.get(a) <= w) {
+                        return;
+                    }
+                    // The old arc stays in the arc table for unpacking, but is no longer searched
+                    out[u].removeAtUnordered(i);
+                    removeArc(in[v], a);
+                    break;
+                }
+            }
+            int a = weight.size();
+            from.add(u);
+            to.add(v);
+            weight.add(w);
+            first.add(firstArc);
+            second.add(secondArc);
+            edges.add(edge);
+            out[u].add(a);
+            in[v].add(a);
+        }
+
+        private int[] contractAll() {
+            int n = out.length;
+            LongMinHeap queue = new LongMinHeap(n);
+            for (int v = 0; v < n; v++) {
+                queue.add(LongMinHeap.pack(priority(v), v));
+            }
+            int[] rank = new int[n];
+            int order = 0;
+            while (!queue.isEmpty()) {
+                int v = LongMinHeap.node(queue.poll());
+                // Priorities go stale as neighbours are contracted, so check again before contracting
+                int current = priority(v);
+                if (!queue.isEmpty() && current > LongMinHeap.distance(queue.peek())) {
+                    queue.add(LongMinHeap.pack(current, v));
+                    continue;
+                }
+                contract(v, false);
+                contracted[v] = true;
+                rank[v] = order++;
+                for (int i = 0; i < out[v].size(); i++) {
+                    int a = out[v].get(i);
+                    contractedNeighbours[to.get(a)]++;
+                    level[to.get(a)] = Math.max(level[to.get(a)], level[v] + 1);
+                    removeArc(in[to.get(a)], a);
+                }
+                for (int i = 0; i < in[v].size(); i++) {
+                    int a = in[v].get(i);
+                    contractedNeighbours[from.get(a)]++;
+                    level[from.get(a)] = Math.max(level[from.get(a)], level[v] + 1);
+                    removeArc(out[from.get(a)], a);
+                }
+            }
+            return rank;
+        }
+
+        private static void removeArc(IntArrayList arcs, int arc) {
+            for (int i = 0; i < arcs.size(); i++) {
+                if (arcs.get(i) == arc) {
+                    arcs.removeAtUnordered(i);
+                    return;
+                }
+            }
+        }
+
+        private int priority(int v) {
+            // Arcs to contracted nodes have already been dropped from out and in
+            int removed = out[v].size() + in[v].size();
+            // Edge difference, weighted double, plus terms that spread the contraction evenly over the graph
+            return 2 * contract(v, true) - removed + contractedNeighbours[v] + level[v];
+        }
+
+        // Returns the number of shortcuts needed to contract v, and adds them unless simulating.
+        private int contract(int v, boolean simulate) {
+            IntArrayList shortcuts = new IntArrayList();
+            for (int i = 0; i < in[v].size(); i++) {
+                int inArc = in[v].get(i);
+                int u = from.get(inArc);
+                if (contracted[u]) {
+                    continue;
+                }
+                int maxOut = -1;
+                for (int j = 0; j < out[v].size(); j++) {
+                    int x = to.get(out[v].get(j));
+                    if (!contracted[x] && x != u) {
+                        maxOut = Math.max(maxOut, weight.get(out[v].get(j)));
+                    }
+                }
+                if (maxOut < 0) {
+                    continue;
+                }
+                witnessSearch(u, v, weight.get(inArc) + maxOut);
+                for (int j = 0; j < out[v].size(); j++) {
+                    int outArc = out[v].get(j);
+                    int x = to.get(outArc);
+                    if (contracted[x] || x == u) {
+                        continue;
+                    }
+                    int via = weight.get(inArc) + weight.get(outArc);
+                    if (witnessSeen[x] != witnessGeneration || witnessDist[x] > via) {
+                        shortcuts.add(inArc);
+                        shortcuts.add(outArc);
+                    }
+                }
+            }
+            if (!simulate) {
+                // Added afterwards so that the witness searches above never run over shortcuts through v
+                for (int i = 0; i < shortcuts.size(); i += 2) {
+                    int inArc = shortcuts.get(i);
+                    int outArc = shortcuts.get(i + 1);
+                    addArc(from.get(inArc), to.get(outArc), weight.get(inArc) + weight.get(outArc), inArc, outArc, null);
+                }
+            }
+            return shortcuts.size() / 2;
+        }
+
+        // Dijkstra from source over the uncontracted nodes except skip, bounded by maxDistance.
+        private void witnessSearch(int source, int skip, int maxDistance) {
+            witnessGeneration++;
+            witnessHeap.clear();
+            witnessSeen[source] = witnessGeneration;
+            witnessDist[source] = 0;
+            witnessHeap.add(LongMinHeap.pack(0, source));
+            int settled = 0;
+            while (!witnessHeap.isEmpty() && settled < WITNESS_SETTLE_LIMIT) {
+                long entry = witnessHeap.poll();
+                int u = LongMinHeap.node(entry);
+                int d = LongMinHeap.distance(entry);
+                if (d > witnessDist[u]) {
+                    continue;
+                }
+                if (d > maxDistance) {
+                    return;
+                }
+                settled++;
+                for (int i = 0; i < out[u].size(); i++) {
+                    int a = out[u].get(i);
+                    int x = to.get(a);
+                    if (contracted[x] || x == skip) {
+                        continue;
+                    }
+                    int alt = d + weight.get(a);
+                    if (witnessSeen[x] != witnessGeneration || alt < witnessDist[x]) {
+                        witnessSeen[x] = witnessGeneration;
+                        witnessDist[x] = alt;
+                        witnessHeap.add(LongMinHeap.pack(alt, x));
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,181 @@
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ContractionHierarchyTest {
+	private static final int SIZE = 12;
+
+	private final ListGraph<Integer> grid = new ListGraph<>();
+
+	@BeforeEach
+	void setUp() {
+		Random random = new Random(11);
+		for (int i = 0; i < SIZE * SIZE; i++) {
+			grid.add(i);
+		}
+		for (int i = 0; i < SIZE * SIZE; i++) {
+			if (i % SIZE < SIZE - 1) {
+				grid.connect(i, i + 1, "Train", 1 + random.nextInt(20));
+			}
+			if (i / SIZE < SIZE - 1) {
+				grid.connect(i, i + SIZE, "Boat", 1 + random.nextInt(20));
+			}
+		}
+		grid.add(-1);
+	}
+
+	@Test
+	@DisplayName("Testar att hierarkin ger samma avstånd som Dijkstra.")
+	void distancesMatchDijkstra() {
+		var hierarchy = new ContractionHierarchy<>(grid);
+		for (int from = 0; from < SIZE * SIZE; from += 7) {
+			for (int to = 0; to < SIZE * SIZE; to++) {
+				assertEquals(grid.getDistance(from, to), hierarchy.getDistance(from, to), "Fel avstånd mellan " + from + " och " + to);
+			}
+		}
+		assertEquals(-1, hierarchy.getDistance(0, -1));
+		assertEquals(-1, hierarchy.getDistance(0, 1000));
+	}
+
+	@Test
+	@DisplayName("Testar avståndstabeller från hierarkin och från CompactGraph mot Dijkstra.")
+	void distanceTablesMatchDijkstra() {
+		List<Integer> sources = List.of(0, 17, 17, 143, -1, 1000);
+		List<Integer> targets = new ArrayList<>(List.of(-1, 1000, 5));
+		for (int to = 0; to < SIZE * SIZE; to += 3) {
+			targets.add(to);
+		}
+		for (DistanceTable<Integer> table : List.of(
+				new ContractionHierarchy<>(grid).distanceTable(sources, targets),
+				new CompactGraph<>(grid).distanceTable(sources, targets))) {
+			int[][] rows = table.toArray();
+			assertEquals(sources.size(), rows.length);
+			for (int i = 0; i < sources.size(); i++) {
+				for (int j = 0; j < targets.size(); j++) {
+					assertEquals(grid.getDistance(sources.get(i), targets.get(j)), rows[i][j], "Fel avstånd mellan " + sources.get(i) + " och " + targets.get(j));
+				}
+			}
+			assertEquals(grid.getDistance(143, 5), table.getDistance(143, 5));
+			assertThrows(NoSuchElementException.class, () -> table.getDistance(1, 5));
+		}
+	}
+
+	@Test
+	@DisplayName("Testar att genvägar packas upp till grafens egna bågar.")
+	void pathsUnpackToOriginalEdges() {
+		var hierarchy = new ContractionHierarchy<>(grid);
+		for (int to = 0; to < SIZE * SIZE; to += 5) {
+			List<Edge<Integer>> path = hierarchy.getPath(3, to);
+			int current = 3;
+			int cost = 0;
+			for (Edge<Integer> edge : path) {
+				assertSame(grid.getEdgeBetween(current, edge.getDestination()), edge, "Fel: vägen ska bestå av grafens egna bågar.");
+				current = edge.getDestination();
+				cost += edge.getWeight();
+			}
+			assertEquals(to, current);
+			assertEquals(grid.getDistance(3, to), cost);
+		}
+		assertNull(hierarchy.getPath(0, -1));
+	}
+
+	@Test
+	@DisplayName("Testar den anpassningsbara hierarkin före och efter ändrade vikter.")
+	void customizableHierarchyFollowsWeightChanges() {
+		var hierarchy = new CustomizableContractionHierarchy<>(grid);
+		assertDistancesMatch(hierarchy);
+
+		Random random = new Random(3);
+		for (int i = 0; i < 40; i++) {
+			int node = random.nextInt(SIZE * SIZE - 1);
+			int neighbour = node % SIZE < SIZE - 1 ? node + 1 : node + SIZE;
+			if (neighbour < SIZE * SIZE) {
+				grid.setConnectionWeight(node, neighbour, random.nextInt(30));
+			}
+		}
+		// En enkelriktad förändring, som när en båge ändras direkt
+		grid.getEdgeBetween(0, 1).setWeight(100);
+
+		hierarchy.customize();
+		assertDistancesMatch(hierarchy);
+
+		List<Edge<Integer>> path = hierarchy.getPath(SIZE * SIZE - 1, 0);
+		assertEquals(grid.getDistance(SIZE * SIZE - 1, 0), path.stream().mapToInt(Edge::getWeight).sum());
+		assertEquals(0, path.get(path.size() - 1).getDestination());
+	}
+
+	@Test
+	@DisplayName("Testar att sökningar under customize ser antingen de gamla eller de nya vikterna.")
+	void customizeReplacesMetricAtomically() throws Exception {
+		var hierarchy = new CustomizableContractionHierarchy<>(grid);
+		int corner = SIZE * SIZE - 1;
+		// Alla vikter 1 eller alla vikter 10, så hörnen ligger antingen 22 eller 220 ifrån varandra.
+		// Vikterna från setUp byts ut innan någon tråd startar.
+		setAllWeights(1);
+		hierarchy.customize();
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			Future<?> writer = executor.submit(() -> {
+				for (int round = 1; round <= 200; round++) {
+					setAllWeights(round % 2 == 0 ? 1 : 10);
+					hierarchy.customize();
+				}
+			});
+			List<Future<?>> readers = new ArrayList<>();
+			for (int reader = 0; reader < 2; reader++) {
+				readers.add(executor.submit(() -> {
+					while (!writer.isDone()) {
+						int distance = hierarchy.getDistance(0, corner);
+						assertTrue(distance == 2 * (SIZE - 1) || distance == 20 * (SIZE - 1), "Fel: sökningen blandade två anpassningar, " + distance);
+						List<Edge<Integer>> path = hierarchy.getPath(corner, 0);
+						assertEquals(2 * (SIZE - 1), path.size());
+					}
+				}));
+			}
+			writer.get(60, TimeUnit.SECONDS);
+			for (Future<?> reader : readers) {
+				reader.get(60, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	@DisplayName("Testar att navetiketterna ger samma avstånd som Dijkstra.")
+	void hubLabelsMatchDijkstra() {
+		// En enkelriktad förändring, så att in- och utetiketterna skiljer sig åt
+		grid.getEdgeBetween(SIZE, 0).setWeight(50);
+		var labels = new HubLabels<>(grid);
+		for (int from = 0; from < SIZE * SIZE; from += 5) {
+			for (int to = 0; to < SIZE * SIZE; to++) {
+				assertEquals(grid.getDistance(from, to), labels.getDistance(from, to), "Fel avstånd mellan " + from + " och " + to);
+				assertEquals(grid.getDistance(to, from), labels.getDistance(to, from), "Fel avstånd mellan " + to + " och " + from);
+			}
+		}
+		assertEquals(-1, labels.getDistance(0, -1));
+		assertEquals(-1, labels.getDistance(1000, 0));
+		assertEquals(0, labels.getDistance(-1, -1));
+		assertTrue(labels.footprintBytes() >= 8L * labels.labelEntries());
+	}
+
+	private void setAllWeights(int weight) {
+		for (int node = 0; node < SIZE * SIZE; node++) {
+			for (Edge<Integer> edge : grid.getEdgesFrom(node)) {
+				edge.setWeight(weight);
+			}
+		}
+	}
+
+	private void assertDistancesMatch(CustomizableContractionHierarchy<Integer> hierarchy) {
+		for (int from = 0; from < SIZE * SIZE; from += 7) {
+			for (int to = 0; to < SIZE * SIZE; to++) {
+				assertEquals(grid.getDistance(from, to), hierarchy.getDistance(from, to), "Fel avstånd mellan " + from + " och " + to);
+			}
+		}
+		assertEquals(-1, hierarchy.getDistance(0, -1));
+	}
+}
@@ -0,0 +1,546 @@
+import java.util.*;
+
+/**
+ * A Customizable Contraction Hierarchy (CCH) over a {@link Graph}, for graphs whose weights
+ * change often but whose topology does not.
+ * <p>
+ * Construction only looks at the topology. The nodes are ordered by nested dissection
+ * (separators last) and contracted without witness searches, so the resulting upward arcs are
+ * valid for every possible metric. {@link #customize()} then reads the current weights of the
+ * graph's {@link Edge} objects and computes the weights of all arcs bottom-up through their
+ * lower triangles. It has to be called after weights have changed, for example by
+ * {@link Graph#setConnectionWeight} or {@link Edge#setWeight}, and is much cheaper than building
+ * a new {@link ContractionHierarchy}. Adding or removing nodes or edges requires a new instance.
+ * The new metric is built in arrays of its own and replaces the old one atomically, so queries
+ * running meanwhile keep a consistent one.
+ * <p>
+ * Queries run Dijkstra upwards from both ends like in a plain contraction hierarchy, and paths
+ * are unpacked into the original {@link Edge} objects. Weights are directional, so the two edges
+ * of a connection may have different weights.
+ */
+public class CustomizableContractionHierarchy<T> {
+    // Subgraphs this small are not split any further by the nested dissection.
+    private static final int DISSECTION_LEAF_SIZE = 8;
+    private static final int INFINITY = Integer.MAX_VALUE;
+    // Placed on the nested dissection work list where the next separator is to be ordered.
+    private static final int[] SEPARATOR_MARK = new int[0];
+
+    // Nodes are numbered by rank, so a lower id means a lower node in the hierarchy.
+    private final Object[] nodes;
+    private final Map<T, Integer> ids;
+
+    // Upward arcs, one row per node sorted by target id. An arc joins a lower node p to a higher node q.
+    private final int[] offsets;
+    private final int[] targets;
+    private volatile Metric metric;
+
+    private final Object[] originalEdges;
+    private final int[] originalArc;
+    private final boolean[] originalForward;
+
+    public CustomizableContractionHierarchy(Graph<T> graph) {
+        int n = graph.getNodes().size();
+        List<T> input = new ArrayList<>(graph.getNodes());
+        Map<T, Integer> inputIds = new HashMap<>(n * 2);
+        for (int u = 0; u < n; u++) {
+            inputIds.put(input.get(u), u);
+        }
+
+        List<Edge<T>> edges = new ArrayList<>();
+        IntArrayList edgeFrom = new IntArrayList();
+        IntArrayList[] inputNeighbours = new IntArrayList[n];
+        for (int u = 0; u < n; u++) {
+            inputNeighbours[u] = new IntArrayList();
+        }
+        for (int u = 0; u < n; u++) {
+            for (Edge<T> edge : graph.getEdgesFrom(input.get(u))) {
+                int v = inputIds.get(edge.getDestination());
+                if (u != v) {
+                    edges.add(edge);
+                    edgeFrom.add(u);
+                    inputNeighbours[u].add(v);
+                    inputNeighbours[v].add(u);
+                }
+            }
+        }
+
+        // Renumber the nodes by rank, which keeps the rows of the upward arcs in rank order and
+        // the arrays of nodes that are contracted together close in memory
+        int[] order = nestedDissection(inputNeighbours);
+        int[] rank = new int[n];
+        for (int i = 0; i < n; i++) {
+            rank[order[i]] = i;
+        }
+        nodes = new Object[n];
+        ids = new HashMap<>(n * 2);
+        IntArrayList[] neighbours = new IntArrayList[n];
+        for (int u = 0; u < n; u++) {
+            nodes[rank[u]] = input.get(u);
+            ids.put(input.get(u), rank[u]);
+            neighbours[rank[u]] = inputNeighbours[u];
+            for (int i = 0; i < inputNeighbours[u].size(); i++) {
+                inputNeighbours[u].set(i, rank[inputNeighbours[u].get(i)]);
+            }
+        }
+
+        // Contract in rank order: the higher neighbours of every node become a clique.
+        IntArrayList[] upward = new IntArrayList[n];
+        for (int v = 0; v < n; v++) {
+            upward[v] = new IntArrayList();
+        }
+        for (int v = 0; v < n; v++) {
+            for (int i = 0; i < neighbours[v].size(); i++) {
+                addUpward(upward, v, neighbours[v].get(i));
+            }
+        }
+        // It is enough to pass the higher neighbours on to the lowest of them (the parent in the
+        // elimination tree): the parent passes them on in turn when it is contracted.
+        int[] mark = new int[n];
+        Arrays.fill(mark, -1);
+        for (int v = 0; v < n; v++) {
+            IntArrayList up = upward[v];
+            if (up.size() < 2) {
+                continue;
+            }
+            int parent = up.get(0);
+            for (int a = 1; a < up.size(); a++) {
+                parent = Math.min(parent, up.get(a));
+            }
+            IntArrayList parentUp = upward[parent];
+            for (int a = 0; a < parentUp.size(); a++) {
+                mark[parentUp.get(a)] = v;
+            }
+            for (int a = 0; a < up.size(); a++) {
+                int x = up.get(a);
+                if (x != parent && mark[x] != v) {
+                    mark[x] = v;
+                    parentUp.add(x);
+                }
+            }
+        }
+
+        offsets = new int[n + 1];
+        for (int v = 0; v < n; v++) {
+            offsets[v + 1] = offsets[v] + upward[v].size();
+        }
+        targets = new int[offsets[n]];
+        for (int v = 0; v < n; v++) {
+            int[] row = upward[v].toArray();
+            Arrays.sort(row);
+            System.arraycopy(row, 0, targets, offsets[v], row.length);
+        }
+
+        originalEdges = edges.toArray();
+        originalArc = new int[originalEdges.length];
+        originalForward = new boolean[originalEdges.length];
+        for (int i = 0; i < originalEdges.length; i++) {
+            int u = rank[edgeFrom.get(i)];
+            int v = ids.get(edges.get(i).getDestination());
+            originalForward[i] = u < v;
+            originalArc[i] = originalForward[i] ? findArc(u, v) : findArc(v, u);
+        }
+
+        customize();
+    }
+
+    // Adds the upward arc between u and v, from whichever of them has the lower rank.
+    private static void addUpward(IntArrayList[] upward, int u, int v) {
+        int low = Math.min(u, v);
+        int high = Math.max(u, v);
+        IntArrayList row = upward[low];
+        for (int i = 0; i < row.size(); i++) {
+            if (row.get(i) == high) {
+                return;
+            }
+        }
+        row.add(high);
+    }
+
+    /**
+     * Orders the nodes so that every separator comes after the two parts it separates. A
+     * separator is one breadth-first level, taken where half the nodes of the part lie below it.
+     */
+    static int[] nestedDissection(IntArrayList[] neighbours) {
+        int n = neighbours.length;
+        int[] order = new int[n];
+        int[] part = new int[n];
+        int[] level = new int[n];
+        int[] queue = new int[n];
+        int filled = 0;
+        int parts = 0;
+        Arrays.fill(level, -1);
+
+        // Work list of parts still to be ordered, each given as a node list. Parts are
+        // ordered leaf first, and a separator is pushed below its parts so it is placed after them.
+        Deque<int[]> work = new ArrayDeque<>();
+        Deque<int[]> separators = new ArrayDeque<>();
+        int[] all = new int[n];
+        for (int v = 0; v < n; v++) {
+            all[v] = v;
+        }
+        work.push(all);
+        List<int[]> placed = new ArrayList<>();
+
+        while (!work.isEmpty()) {
+            int[] nodes = work.pop();
+            if (nodes == SEPARATOR_MARK) {
+                placed.add(separators.pop());
+                continue;
+            }
+            if (nodes.length <= DISSECTION_LEAF_SIZE) {
+                placed.add(nodes);
+                continue;
+            }
+            int id = ++parts;
+            for (int v : nodes) {
+                part[v] = id;
+                level[v] = -1;
+            }
+            // Two breadth-first passes find a node far out on the rim of the first component
+            int start = farthest(nodes[0], neighbours, part, id, level, queue);
+            for (int v : nodes) {
+                level[v] = -1;
+            }
+            start = farthest(start, neighbours, part, id, level, queue);
+            for (int v : nodes) {
+                level[v] = -1;
+            }
+            farthest(start, neighbours, part, id, level, queue);
+
+            int reached = 0;
+            int maxLevel = 0;
+            for (int v : nodes) {
+                if (level[v] >= 0) {
+                    reached++;
+                    maxLevel = Math.max(maxLevel, level[v]);
+                }
+            }
+            if (reached < nodes.length) {
+                // Disconnected: the unreached rest is a part of its own and needs no separator
+                int[] component = new int[reached];
+                int[] rest = new int[nodes.length - reached];
+                int c = 0;
+                int r = 0;
+                for (int v : nodes) {
+                    if (level[v] >= 0) {
+                        component[c++] = v;
+                    } else {
+                        rest[r++] = v;
+                    }
+                }
+                work.push(rest);
+                work.push(component);
+                continue;
+            }
+            int[] perLevel = new int[maxLevel + 1];
+            for (int v : nodes) {
+                perLevel[level[v]]++;
+            }
+            // Take the smallest level that leaves at least a third of the nodes on either side
+            int cut = -1;
+            int seen = 0;
+            for (int l = 0; l <= maxLevel; l++) {
+                boolean balanced = seen >= nodes.length / 3 && nodes.length - seen - perLevel[l] >= nodes.length / 3;
+                if (balanced && (cut < 0 || perLevel[l] < perLevel[cut])) {
+                    cut = l;
+                }
+                seen += perLevel[l];
+            }
+            if (cut < 0) {
+                cut = 0;
+                for (seen = 0; cut < maxLevel && seen + perLevel[cut] < nodes.length / 2; cut++) {
+                    seen += perLevel[cut];
+                }
+            }
+            IntArrayList below = new IntArrayList();
+            IntArrayList above = new IntArrayList();
+            IntArrayList separator = new IntArrayList();
+            for (int v : nodes) {
+                if (level[v] < cut) {
+                    below.add(v);
+                } else if (level[v] > cut) {
+                    above.add(v);
+                } else {
+                    separator.add(v);
+                }
+            }
+            separators.push(separator.toArray());
+            work.push(SEPARATOR_MARK);
+            if (!above.isEmpty()) {
+                work.push(above.toArray());
+            }
+            if (!below.isEmpty()) {
+                work.push(below.toArray());
+            }
+        }
+        for (int[] nodes : placed) {
+            for (int v : nodes) {
+                order[filled++] = v;
+            }
+        }
+        return order;
+    }
+
+    // Breadth-first search inside one part; fills level and returns the last node reached.
+    private static int farthest(int start, IntArrayList[] neighbours, int[] part, int id, int[] level, int[] queue) {
+        int head = 0;
+        int tail = 0;
+        level[start] = 0;
+        queue[tail++] = start;
+        while (head < tail) {
+            int u = queue[head++];
+            for (int i = 0; i < neighbours[u].size(); i++) {
+                int v = neighbours[u].get(i);
+                if (part[v] == id && level[v] < 0) {
+                    level[v] = level[u] + 1;
+                    queue[tail++] = v;
+                }
+            }
+        }
+        return queue[tail - 1];
+    }
+
+    @SuppressWarnings("unchecked")
+    private Edge<T> originalEdge(int index) {
+        return (Edge<T>) originalEdges[index];
+    }
+
+    // The arc from low to high, where low has the lower rank, or -1 if there is none.
+    private int findArc(int low, int high) {
+        int slot = Arrays.binarySearch(targets, offsets[low], offsets[low + 1], high);
+        return slot >= 0 ? slot : -1;
+    }
+
+    /**
+     * Recomputes all arc weights from the current weights of the graph's edges.
+     */
+    public void customize() {
+        Metric next = new Metric(targets.length);
+        int[] forwardWeight = next.forwardWeight;
+        int[] backwardWeight = next.backwardWeight;
+        int[] forwardVia = next.forwardVia;
+        int[] backwardVia = next.backwardVia;
+        Arrays.fill(forwardWeight, INFINITY);
+        Arrays.fill(backwardWeight, INFINITY);
+        for (int i = 0; i < originalEdges.length; i++) {
+            int arc = originalArc[i];
+            int weight = originalEdge(i).getWeight();
+            if (originalForward[i] && weight < forwardWeight[arc]) {
+                forwardWeight[arc] = weight;
+                forwardVia[arc] = ~i;
+            } else if (!originalForward[i] && weight < backwardWeight[arc]) {
+                backwardWeight[arc] = weight;
+                backwardVia[arc] = ~i;
+            }
+        }
+
+        // Every lower triangle v < a < b improves the arc a - b through v. Processing v in rank
+        // order means the arcs v - a and v - b already have their final weights.
+        for (int v = 0; v < nodes.length; v++) {
+            int end = offsets[v + 1];
+            for (int i = offsets[v]; i < end; i++) {
+                int a = targets[i];
+                int up = backwardWeight[i];
+                int down = forwardWeight[i];
+                if (up == INFINITY && down == INFINITY) {
+                    continue;
+                }
+                // Every b after a in the row of v is also in the row of a, and both rows are
+                // sorted, so the arcs a - b are found by walking the two rows together
+                int arc = offsets[a];
+                for (int j = i + 1; j < end; j++) {
+                    int b = targets[j];
+                    while (targets[arc] != b) {
+                        arc++;
+                    }
+                    // a -> v -> b and b -> v -> a
+                    if (up != INFINITY && forwardWeight[j] != INFINITY && up + forwardWeight[j] < forwardWeight[arc]) {
+                        forwardWeight[arc] = up + forwardWeight[j];
+                        forwardVia[arc] = v;
+                    }
+                    if (down != INFINITY && backwardWeight[j] != INFINITY && backwardWeight[j] + down < backwardWeight[arc]) {
+                        backwardWeight[arc] = backwardWeight[j] + down;
+                        backwardVia[arc] = v;
+                    }
+                }
+            }
+        }
+        metric = next;
+    }
+
+    public int getDistance(T from, T to) {
+        Integer source = ids.get(from);
+        Integer target = ids.get(to);
+        if (source == null || target == null) {
+            return -1;
+        }
+        Query query = Query.acquire(nodes.length);
+        return query.run(this, metric, source, target) < 0 ? -1 : query.best;
+    }
+
+    public List<Edge<T>> getPath(T from, T to) {
+        Integer source = ids.get(from);
+        Integer target = ids.get(to);
+        if (source == null || target == null) {
+            return null;
+        }
+        Query query = Query.acquire(nodes.length);
+        // The path is unpacked with the metric it was found with, even if customize runs meanwhile
+        Metric current = metric;
+        int meeting = query.run(this, current, source, target);
+        if (meeting < 0) {
+            return null;
+        }
+        IntArrayList upward = new IntArrayList();
+        IntArrayList arcLow = new IntArrayList();
+        for (int v = meeting; v != source; v = query.forwardPrevious[v]) {
+            upward.add(query.forwardArc[v]);
+            arcLow.add(query.forwardPrevious[v]);
+        }
+        List<Edge<T>> path = new ArrayList<>();
+        for (int i = upward.size() - 1; i >= 0; i--) {
+            unpack(current, upward.get(i), arcLow.get(i), true, path);
+        }
+        for (int v = meeting; v != target; v = query.backwardPrevious[v]) {
+            unpack(current, query.backwardArc[v], query.backwardPrevious[v], false, path);
+        }
+        return path;
+    }
+
+    // Appends the original edges of the arc from low, forward meaning from low to the higher node.
+    private void unpack(Metric metric, int arc, int low, boolean forward, List<Edge<T>> path) {
+        int middle = forward ? metric.forwardVia[arc] : metric.backwardVia[arc];
+        if (middle < 0) {
+            path.add(originalEdge(~middle));
+            return;
+        }
+        int toLow = findArc(middle, low);
+        int toHigh = findArc(middle, targets[arc]);
+        if (forward) {
+            unpack(metric, toLow, middle, false, path);
+            unpack(metric, toHigh, middle, true, path);
+        } else {
+            unpack(metric, toHigh, middle, false, path);
+            unpack(metric, toLow, middle, true, path);
+        }
+    }
+
+    public int arcCount() {
+        return targets.length;
+    }
+
+    // The weights of all arcs for one customization. Filled before it is published, never changed after.
+    private static final class Metric {
+        // Forward is the cost p -> q of an arc, backward the cost q -> p.
+        private final int[] forwardWeight;
+        private final int[] backwardWeight;
+        // The lower node a customized arc goes through, or, when the weight comes from an original
+        // edge, ~index of the edge in originalEdges. Only meaningful for arcs with a weight.
+        private final int[] forwardVia;
+        private final int[] backwardVia;
+
+        private Metric(int arcs) {
+            forwardWeight = new int[arcs];
+            backwardWeight = new int[arcs];
+            forwardVia = new int[arcs];
+            backwardVia = new int[arcs];
+        }
+    }
+
+    // Search state for one thread, shared by all hierarchies and grown to the largest of them.
+    // It holds no reference to a hierarchy, so the pool does not keep discarded ones alive.
+    // Arrays are reset in O(1) by bumping the generation.
+    private static final class Query {
+        private static final ThreadLocal<Query> POOL = ThreadLocal.withInitial(Query::new);
+
+        private final int[][] dist = {new int[0], new int[0]};
+        private final int[][] seen = {new int[0], new int[0]};
+        private final int[][] arc = {new int[0], new int[0]};
+        private final int[][] previous = {new int[0], new int[0]};
+        private final LongMinHeap[] heaps = {new LongMinHeap(), new LongMinHeap()};
+        private int[] forwardArc;
+        private int[] backwardArc;
+        private int[] forwardPrevious;
+        private int[] backwardPrevious;
+        private int generation;
+        private int best;
+
+        private static Query acquire(int n) {
+            Query query = POOL.get();
+            if (query.seen[0].length < n) {
+                for (int side = 0; side < 2; side++) {
+                    query.dist[side] = new int[n];
+                    query.seen[side] = new int[n];
+                    query.arc[side] = new int[n];
+                    query.previous[side] = new int[n];
+                }
+                query.forwardArc = query.arc[0];
+                query.backwardArc = query.arc[1];
+                query.forwardPrevious = query.previous[0];
+                query.backwardPrevious = query.previous[1];
+                query.generation = 0;
+            }
+            return query;
+        }
+
+        // Returns the highest node on the shortest path, or -1 if there is no path.
+        private int run(CustomizableContractionHierarchy<?> hierarchy, Metric metric, int source, int target) {
+            int[] offsets = hierarchy.offsets;
+            int[] targets = hierarchy.targets;
+            nextGeneration();
+            best = INFINITY;
+            int meeting = -1;
+            heaps[0].clear();
+            heaps[1].clear();
+            reach(0, source, 0, -1, -1);
+            reach(1, target, 0, -1, -1);
+
+            int side = 0;
+            while (true) {
+                boolean forwardDone = heaps[0].isEmpty() || LongMinHeap.distance(heaps[0].peek()) >= best;
+                boolean backwardDone = heaps[1].isEmpty() || LongMinHeap.distance(heaps[1].peek()) >= best;
+                if (forwardDone && backwardDone) {
+                    return meeting;
+                }
+                side = forwardDone ? 1 : backwardDone ? 0 : 1 - side;
+
+                long entry = heaps[side].poll();
+                int u = LongMinHeap.node(entry);
+                int d = LongMinHeap.distance(entry);
+                if (d > dist[side][u]) {
+                    continue;
+                }
+                int other = 1 - side;
+                if (seen[other][u] == generation && d + dist[other][u] < best) {
+                    best = d + dist[other][u];
+                    meeting = u;
+                }
+                int[] weights = side == 0 ? metric.forwardWeight : metric.backwardWeight;
+                for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                    if (weights[e] != INFINITY) {
+                        reach(side, targets[e], d + weights[e], e, u);
+                    }
+                }
+            }
+        }
+
+        private void nextGeneration() {
+            if (++generation == 0) {
+                // The counter wrapped around, so old stamps could look current
+                Arrays.fill(seen[0], 0);
+                Arrays.fill(seen[1], 0);
+                generation = 1;
+            }
+        }
+
+        private void reach(int side, int v, int d, int viaArc, int from) {
+            if (seen[side][v] != generation || d < dist[side][v]) {
+                seen[side][v] = generation;
+                dist[side][v] = d;
+                arc[side][v] = viaArc;
+                previous[side][v] = from;
+                heaps[side].add(LongMinHeap.pack(d, v));
+            }
+        }
+    }
+}
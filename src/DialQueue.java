@@ -0,0 +1,106 @@
+import java.util.Arrays;
+
+/**
+ * Dial's bucket queue for Dijkstra with small integer weights. There is one bucket per distance
+ * in a circular window that is wider than the largest weight, so every new entry falls inside
+ * the window and add and poll are O(1) apart from walking over empty buckets.
+ * <p>
+ * The queue relies on Dijkstra's monotonicity: nothing is added with a distance below the last
+ * one polled. An entry beyond the window, for example after an edge was made heavier than the
+ * weight the queue was sized for, waits in an overflow heap until the window reaches it, so the
+ * queue stays correct for any weight and only gets slower.
+ */
+final class DialQueue implements LongPriorityQueue {
+    // Graphs with heavier edges are searched with a binary heap instead.
+    static final int MAX_WEIGHT = 1 << 10;
+
+    private final long[][] buckets;
+    private final int[] sizes;
+    private final int mask;
+    private final LongMinHeap overflow = new LongMinHeap();
+    // The distance of the bucket at position current.
+    private int base;
+    private int current;
+    private int size;
+    // Set until the first entry after a clear decides where the window starts.
+    private boolean fresh = true;
+
+    DialQueue(int maxWeight) {
+        int width = Integer.highestOneBit(Math.max(maxWeight, 1)) << 1;
+        buckets = new long[width][];
+        sizes = new int[width];
+        mask = width - 1;
+    }
+
+    int width() {
+        return buckets.length;
+    }
+
+    @Override
+    public void add(long entry) {
+        int distance = LongMinHeap.distance(entry);
+        if (fresh) {
+            base = distance;
+            current = distance & mask;
+            fresh = false;
+        }
+        if (distance - base >= buckets.length) {
+            overflow.add(entry);
+            return;
+        }
+        push(entry, distance);
+    }
+
+    private void push(long entry, int distance) {
+        int bucket = distance & mask;
+        int n = sizes[bucket];
+        if (buckets[bucket] == null) {
+            buckets[bucket] = new long[4];
+        } else if (n == buckets[bucket].length) {
+            buckets[bucket] = Arrays.copyOf(buckets[bucket], n * 2);
+        }
+        buckets[bucket][n] = entry;
+        sizes[bucket] = n + 1;
+        size++;
+    }
+
+    @Override
+    public long poll() {
+        if (size == 0) {
+            // Only overflow entries are left; move the window to the smallest of them
+            base = LongMinHeap.distance(overflow.peek());
+            current = base & mask;
+            admitOverflow();
+        }
+        while (sizes[current] == 0) {
+            current = (current + 1) & mask;
+            base++;
+            admitOverflow();
+        }
+        size--;
+        return buckets[current][--sizes[current]];
+    }
+
+    // Moves overflow entries that now fit in the window into their buckets.
+    private void admitOverflow() {
+        while (!overflow.isEmpty() && LongMinHeap.distance(overflow.peek()) - base < buckets.length) {
+            long entry = overflow.poll();
+            push(entry, LongMinHeap.distance(entry));
+        }
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0 && overflow.isEmpty();
+    }
+
+    @Override
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(sizes, 0);
+            size = 0;
+        }
+        overflow.clear();
+        fresh = true;
+    }
+}
@@ -0,0 +1,330 @@
+import java.io.Serializable;
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * A {@link Graph} whose edges have a direction, for one-way routes and for return trips that
+ * take a different time. {@link #connectOneWay} creates a single edge; {@link #connect} still
+ * creates an edge in each direction, so code written for {@link ListGraph} keeps working.
+ * <p>
+ * Besides the edges from every node the graph keeps an index of the edges into it, which
+ * {@link #getEdgesTo} returns for searches that run backwards from the target. The operations
+ * of the Graph interface that take two nodes act on both directions where they exist:
+ * {@link #setConnectionWeight} and {@link #disconnect} only fail if neither direction exists.
+ */
+public class DirectedGraph<T> implements Graph<T>, Serializable {
+    // The edges from each node, keyed by destination.
+    private final Map<T, Adjacency<T>> outgoing = new HashMap<>();
+    // The edges into each node, keyed by the node they start from.
+    private final Map<T, Map<T, Edge<T>>> incoming = new HashMap<>();
+    // Dense ids for the searches, which keep their state in pooled arrays. Ids of removed nodes are reused.
+    private final Map<T, Integer> ids = new HashMap<>();
+    private final List<T> nodesById = new ArrayList<>();
+    private final Deque<Integer> freeIds = new ArrayDeque<>();
+    // Largest weight ever given through the graph; it picks the priority queue for Dijkstra.
+    private int maxWeight = 0;
+    // Algorithm used by getPath and getDistance; null means the built-in Dijkstra.
+    private transient PathSearch<T> pathSearch;
+
+    @Override
+    public void add(T node) {
+        if (outgoing.putIfAbsent(node, new Adjacency<>()) == null) {
+            incoming.put(node, new HashMap<>(4));
+            Integer id = freeIds.poll();
+            if (id == null) {
+                id = nodesById.size();
+                nodesById.add(node);
+            } else {
+                nodesById.set(id, node);
+            }
+            ids.put(node, id);
+        }
+    }
+
+    private void checkNodes(T node1, T node2) {
+        if (!outgoing.containsKey(node1) || !outgoing.containsKey(node2)) {
+            throw new NoSuchElementException("The node is not found");
+        }
+    }
+
+    private static void checkWeight(int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("The weight is negative");
+        }
+    }
+
+    @Override
+    public boolean isDirected() {
+        return true;
+    }
+
+    // Adds an edge in each direction with the same name and weight.
+    @Override
+    public void connect(T node1, T node2, String name, int weight) {
+        checkNodes(node1, node2);
+        checkWeight(weight);
+        if (outgoing.get(node1).containsDestination(node2) || outgoing.get(node2).containsDestination(node1)) {
+            throw new IllegalStateException("The edge already exists");
+        }
+        addEdge(node1, node2, name, weight);
+        // A loop is its own way back
+        if (!node1.equals(node2)) {
+            addEdge(node2, node1, name, weight);
+        }
+    }
+
+    public void connectOneWay(T from, T to, String name, int weight) {
+        checkNodes(from, to);
+        checkWeight(weight);
+        if (outgoing.get(from).containsDestination(to)) {
+            throw new IllegalStateException("The edge already exists");
+        }
+        addEdge(from, to, name, weight);
+    }
+
+    private void addEdge(T from, T to, String name, int weight) {
+        Edge<T> edge = new Edge<>(to, name, weight);
+        outgoing.get(from).put(edge);
+        incoming.get(to).put(from, edge);
+        maxWeight = Math.max(maxWeight, weight);
+    }
+
+    @Override
+    public void setConnectionWeight(T node1, T node2, int weight) {
+        checkNodes(node1, node2);
+        checkWeight(weight);
+        Edge<T> there = outgoing.get(node1).get(node2);
+        Edge<T> back = outgoing.get(node2).get(node1);
+        if (there == null && back == null) {
+            throw new IllegalStateException("The nodes are not connected");
+        }
+        if (there != null) {
+            there.setWeight(weight);
+        }
+        if (back != null) {
+            back.setWeight(weight);
+        }
+        maxWeight = Math.max(maxWeight, weight);
+    }
+
+    public void setOneWayWeight(T from, T to, int weight) {
+        checkNodes(from, to);
+        checkWeight(weight);
+        Edge<T> edge = outgoing.get(from).get(to);
+        if (edge == null) {
+            throw new IllegalStateException("The nodes are not connected");
+        }
+        edge.setWeight(weight);
+        maxWeight = Math.max(maxWeight, weight);
+    }
+
+    @Override
+    public Set<T> getNodes() {
+        return Collections.unmodifiableSet(outgoing.keySet());
+    }
+
+    @Override
+    public Collection<Edge<T>> getEdgesFrom(T node) {
+        return Set.copyOf(adjacency(node));
+    }
+
+    @Override
+    public Collection<Edge<T>> getEdgesView(T node) {
+        return Collections.unmodifiableCollection(adjacency(node));
+    }
+
+    @Override
+    public void forEachEdge(T node, Consumer<? super Edge<T>> action) {
+        adjacency(node).forEach(action);
+    }
+
+    @Override
+    public Collection<Map.Entry<T, Edge<T>>> getEdgesTo(T node) {
+        Map<T, Edge<T>> edges = incoming.get(node);
+        if (edges == null) {
+            throw new NoSuchElementException("The node is not found");
+        }
+        return Collections.unmodifiableMap(edges).entrySet();
+    }
+
+    private Adjacency<T> adjacency(T node) {
+        Adjacency<T> edges = outgoing.get(node);
+        if (edges == null) {
+            throw new NoSuchElementException("The node is not found");
+        }
+        return edges;
+    }
+
+    // The edge from node1 to node2, or null if there is none; an edge the other way does not count.
+    @Override
+    public Edge<T> getEdgeBetween(T node1, T node2) {
+        checkNodes(node1, node2);
+        return outgoing.get(node1).get(node2);
+    }
+
+    @Override
+    public void disconnect(T node1, T node2) {
+        checkNodes(node1, node2);
+        boolean there = removeEdge(node1, node2);
+        boolean back = removeEdge(node2, node1);
+        if (!there && !back) {
+            throw new IllegalStateException();
+        }
+    }
+
+    public void disconnectOneWay(T from, T to) {
+        checkNodes(from, to);
+        if (!removeEdge(from, to)) {
+            throw new IllegalStateException();
+        }
+    }
+
+    private boolean removeEdge(T from, T to) {
+        if (outgoing.get(from).removeDestination(to) == null) {
+            return false;
+        }
+        incoming.get(to).remove(from);
+        return true;
+    }
+
+    @Override
+    public void remove(T node) {
+        if (!outgoing.containsKey(node)) {
+            throw new NoSuchElementException("The node is not found");
+        }
+        for (Edge<T> edge : outgoing.remove(node)) {
+            incoming.get(edge.getDestination()).remove(node);
+        }
+        // A loop from the node to itself has already left the index with the outgoing edges
+        for (T source : incoming.remove(node).keySet()) {
+            outgoing.get(source).removeDestination(node);
+        }
+        int id = ids.remove(node);
+        nodesById.set(id, null);
+        freeIds.push(id);
+    }
+
+    // Whether "to" can be reached from "from" following the edges' directions.
+    @Override
+    public boolean pathExists(T from, T to) {
+        if (!outgoing.containsKey(from) || !outgoing.containsKey(to)) {
+            return false;
+        }
+        int target = ids.get(to);
+        SearchWorkspace workspace = SearchWorkspace.acquire(nodesById.size());
+        try {
+            int[] queue = workspace.queue;
+            int head = 0;
+            int tail = 0;
+            int source = ids.get(from);
+            workspace.reach(source, 0, source, null);
+            queue[tail++] = source;
+            while (head < tail) {
+                int node = queue[head++];
+                if (node == target) {
+                    return true;
+                }
+                for (Edge<T> edge : outgoing.get(nodesById.get(node))) {
+                    int v = ids.get(edge.getDestination());
+                    if (!workspace.reached(v)) {
+                        workspace.reach(v, 0, node, null);
+                        queue[tail++] = v;
+                    }
+                }
+            }
+            return false;
+        } finally {
+            workspace.release();
+        }
+    }
+
+    public void setPathSearch(PathSearch<T> pathSearch) {
+        this.pathSearch = pathSearch;
+    }
+
+    @Override
+    public List<Edge<T>> getPath(T from, T to) {
+        if (pathSearch != null) {
+            return pathSearch.getPath(this, from, to);
+        }
+        if (!outgoing.containsKey(from) || !outgoing.containsKey(to)) {
+            return null;
+        }
+        int source = ids.get(from);
+        int target = ids.get(to);
+        SearchWorkspace workspace = SearchWorkspace.acquire(nodesById.size());
+        try {
+            if (search(source, target, workspace) < 0) {
+                return null;
+            }
+            List<Edge<T>> path = new ArrayList<>();
+            for (int node = target; node != source; node = workspace.parent[node]) {
+                path.add(edgeTo(workspace, node));
+            }
+            Collections.reverse(path);
+            return path;
+        } finally {
+            workspace.release();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private Edge<T> edgeTo(SearchWorkspace workspace, int node) {
+        return (Edge<T>) workspace.parentEdge[node];
+    }
+
+    @Override
+    public int getDistance(T from, T to) {
+        if (pathSearch != null) {
+            return pathSearch.getDistance(this, from, to);
+        }
+        if (!outgoing.containsKey(from) || !outgoing.containsKey(to)) {
+            return -1;
+        }
+        SearchWorkspace workspace = SearchWorkspace.acquire(nodesById.size());
+        try {
+            return search(ids.get(from), ids.get(to), workspace);
+        } finally {
+            workspace.release();
+        }
+    }
+
+    // Dijkstra along the edges' directions that stops once target is settled, or -1.
+    private int search(int source, int target, SearchWorkspace workspace) {
+        LongPriorityQueue queue = workspace.priorityQueue(maxWeight);
+        workspace.reach(source, 0, source, null);
+        queue.add(LongMinHeap.pack(0, source));
+        while (!queue.isEmpty()) {
+            long entry = queue.poll();
+            int node = LongMinHeap.node(entry);
+            int distance = LongMinHeap.distance(entry);
+            if (distance > workspace.dist[node]) {
+                continue;
+            }
+            if (node == target) {
+                return distance;
+            }
+            for (Edge<T> edge : outgoing.get(nodesById.get(node))) {
+                int destination = ids.get(edge.getDestination());
+                int altDistance = distance + edge.getWeight();
+                if (!workspace.reached(destination) || altDistance < workspace.dist[destination]) {
+                    workspace.reach(destination, altDistance, node, edge);
+                    queue.add(LongMinHeap.pack(altDistance, destination));
+                }
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<T, Adjacency<T>> node : outgoing.entrySet()) {
+            builder.append(node.getKey());
+            for (Edge<T> edge : node.getValue()) {
+                builder.append(edge.toString());
+            }
+        }
+        return builder.toString();
+    }
+}
@@ -0,0 +1,90 @@
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DirectedGraphTest {
+	private final DirectedGraph<String> graph = new DirectedGraph<>();
+
+	@BeforeEach
+	void setUp() {
+		for (String node : new String[]{"A", "B", "C", "D", "E"}) {
+			graph.add(node);
+		}
+		// Flyget går bara ena vägen, färjan tillbaka tar längre tid
+		graph.connectOneWay("A", "B", "Airplane", 2);
+		graph.connectOneWay("B", "C", "Boat", 3);
+		graph.connectOneWay("C", "B", "Boat", 7);
+		graph.connect("C", "D", "Train", 4);
+		graph.connectOneWay("D", "A", "Bus", 1);
+	}
+
+	@Test
+	@DisplayName("Testar enkelriktade bågar och indexet över inkommande bågar.")
+	void oneWayEdges() {
+		assertNotNull(graph.getEdgeBetween("A", "B"));
+		assertNull(graph.getEdgeBetween("B", "A"), "Fel: bågen ska bara gå ena vägen.");
+		assertEquals(1, graph.getEdgesFrom("A").size());
+		assertEquals(Set.of("A", "C"), keys(graph.getEdgesTo("B")));
+		assertThrows(IllegalStateException.class, () -> graph.connectOneWay("A", "B", "Airplane", 1));
+
+		graph.setConnectionWeight("B", "C", 5);
+		assertEquals(5, graph.getEdgeBetween("B", "C").getWeight());
+		assertEquals(5, graph.getEdgeBetween("C", "B").getWeight());
+		graph.setOneWayWeight("C", "B", 9);
+		assertEquals(5, graph.getEdgeBetween("B", "C").getWeight());
+
+		graph.disconnectOneWay("C", "B");
+		assertEquals(Set.of("A"), keys(graph.getEdgesTo("B")));
+		assertThrows(IllegalStateException.class, () -> graph.disconnectOneWay("C", "B"));
+
+		graph.connect("E", "E", "Loop", 1);
+		assertEquals(1, graph.getEdgesView("E").size(), "Fel: en båge till noden själv ska bara finnas en gång.");
+		assertEquals(Set.of("E"), keys(graph.getEdgesTo("E")));
+		graph.disconnect("E", "E");
+		assertTrue(graph.getEdgesView("E").isEmpty());
+
+		graph.remove("A");
+		assertEquals(Set.of("B", "D"), keys(graph.getEdgesTo("C")));
+		assertTrue(keys(graph.getEdgesTo("B")).isEmpty());
+		assertTrue(graph.getEdgesFrom("D").stream().noneMatch(edge -> edge.getDestination().equals("A")));
+	}
+
+	@Test
+	@DisplayName("Testar att vägsökningarna följer bågarnas riktning.")
+	void searchesFollowDirection() {
+		assertEquals(5, graph.getDistance("A", "C"));
+		assertEquals(5, graph.getDistance("C", "A"));
+		assertEquals(7, graph.getDistance("C", "B"));
+		assertTrue(graph.pathExists("E", "E"));
+		assertFalse(graph.pathExists("A", "E"));
+
+		var bidirectional = new BidirectionalSearch<String>();
+		var hierarchy = new ContractionHierarchy<>(graph);
+		var compact = new CompactGraph<>(graph);
+		for (String from : graph.getNodes()) {
+			for (String to : graph.getNodes()) {
+				int expected = graph.getDistance(from, to);
+				assertEquals(expected, bidirectional.getDistance(graph, from, to), "Fel avstånd mellan " + from + " och " + to);
+				assertEquals(expected, hierarchy.getDistance(from, to), "Fel avstånd mellan " + from + " och " + to);
+				assertEquals(expected, compact.getDistance(from, to), "Fel avstånd mellan " + from + " och " + to);
+			}
+		}
+		assertEquals(List.of("A", "B"), destinations(bidirectional.getPath(graph, "D", "B")));
+		assertEquals(List.of("D", "A"), destinations(bidirectional.getPath(graph, "C", "A")));
+		assertThrows(IllegalArgumentException.class, () -> new IntGraphAdapter<>(graph));
+	}
+
+	private static Set<String> keys(Collection<Map.Entry<String, Edge<String>>> edges) {
+		Set<String> keys = new HashSet<>();
+		for (Map.Entry<String, Edge<String>> edge : edges) {
+			keys.add(edge.getKey());
+		}
+		return keys;
+	}
+
+	private static List<String> destinations(List<Edge<String>> path) {
+		return path.stream().map(Edge::getDestination).toList();
+	}
+}
@@ -0,0 +1,76 @@
+import java.util.*;
+
+/**
+ * Shortest distances from a list of sources to a list of targets, as a dense matrix of ints
+ * stored row by row in one array. Row i holds the distances from source i, column j those to
+ * target j, and -1 marks a pair without a path or with a node that is not in the graph.
+ * <p>
+ * Built by {@link CompactGraph#distanceTable} or {@link ContractionHierarchy#distanceTable}.
+ */
+public class DistanceTable<T> {
+    private final List<T> sources;
+    private final List<T> targets;
+    private final int[] distances;
+
+    DistanceTable(List<T> sources, List<T> targets, int[] distances) {
+        this.sources = sources;
+        this.targets = targets;
+        this.distances = distances;
+    }
+
+    // A table where every distance is -1, for the builders to fill in.
+    static int[] unreachable(int rows, int columns) {
+        long cells = (long) rows * columns;
+        if (cells > Integer.MAX_VALUE - 8) {
+            throw new IllegalArgumentException("A table of " + rows + " x " + columns + " distances is too large");
+        }
+        int[] distances = new int[(int) cells];
+        Arrays.fill(distances, -1);
+        return distances;
+    }
+
+    public List<T> getSources() {
+        return sources;
+    }
+
+    public List<T> getTargets() {
+        return targets;
+    }
+
+    public int get(int sourceIndex, int targetIndex) {
+        Objects.checkIndex(sourceIndex, sources.size());
+        Objects.checkIndex(targetIndex, targets.size());
+        return distances[sourceIndex * targets.size() + targetIndex];
+    }
+
+    // The distance from source to target; the first occurrence of each in the lists counts.
+    public int getDistance(T source, T target) {
+        int i = sources.indexOf(source);
+        int j = targets.indexOf(target);
+        if (i < 0 || j < 0) {
+            throw new NoSuchElementException("The node is not in the table");
+        }
+        return get(i, j);
+    }
+
+    // A copy of the distances from one source, indexed like the targets.
+    public int[] getRow(int sourceIndex) {
+        Objects.checkIndex(sourceIndex, sources.size());
+        int from = sourceIndex * targets.size();
+        return Arrays.copyOfRange(distances, from, from + targets.size());
+    }
+
+    // A copy of the whole table as one array per source.
+    public int[][] toArray() {
+        int[][] rows = new int[sources.size()][];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = getRow(i);
+        }
+        return rows;
+    }
+
+    @Override
+    public String toString() {
+        return "DistanceTable[" + sources.size() + " x " + targets.size() + "]";
+    }
+}
@@ -5,6 +5,8 @@ public class Edge <T> implements Serializable {
     private final T destination;
     private final String name;
     private int weight;
+    // The parallel edges this edge is one of, or null if it is the only edge to its destination.
+    private ParallelEdges<T> group;
 
     public Edge(T destination, String name, int weight) {
         this.destination = destination;
@@ -25,22 +27,31 @@ public class Edge <T> implements Serializable {
             throw new IllegalArgumentException("The weight is negative");
         }
         this.weight = weight;
+        if (group != null){
+            group.weightChanged(this);
+        }
+    }
+
+    void setGroup(ParallelEdges<T> group){
+        this.group = group;
     }
 
     public String getName(){
         return name;
     }
 
+    // An edge is identified by its destination and name only, so changing the weight of an edge
+    // that is stored in a hash set or map does not move it to another bucket.
     @Override
     public boolean equals(Object obj) {
         if (obj instanceof Edge edge) {
-            return destination.equals(edge.destination) && name.equals(edge.name) && weight == edge.getWeight();
+            return destination.equals(edge.destination) && name.equals(edge.name);
         }
         return false;
     }
     @Override
     public int hashCode() {
-        return Objects.hash(destination, name, weight);
+        return Objects.hash(destination, name);
     }
     @Override
     public String toString() {
@@ -0,0 +1,45 @@
+/**
+ * Estimates the remaining cost as the straight-line pixel distance between two
+ * {@link Location}s on the map, scaled by the smallest cost per pixel of any edge in the graph.
+ * The scaling keeps the estimate admissible: no edge is cheaper per pixel than the factor, so
+ * no path can be cheaper than the factor times the straight-line distance.
+ * <p>
+ * The factor is measured when the heuristic is created. Call {@link #calibrate()} after
+ * weights have been lowered or edges added, otherwise the estimate may be too high.
+ */
+public class EuclideanHeuristic implements Heuristic<Location> {
+    private final Graph<Location> graph;
+    private double costPerPixel;
+
+    public EuclideanHeuristic(Graph<Location> graph) {
+        this.graph = graph;
+        calibrate();
+    }
+
+    public void calibrate() {
+        double min = Double.POSITIVE_INFINITY;
+        for (Location location : graph.getNodes()) {
+            for (Edge<Location> edge : graph.getEdgesFrom(location)) {
+                double pixels = pixelDistance(location, edge.getDestination());
+                if (pixels > 0) {
+                    min = Math.min(min, edge.getWeight() / pixels);
+                }
+            }
+        }
+        // Without any measurable edge there is nothing to scale by, so fall back to Dijkstra
+        costPerPixel = Double.isInfinite(min) ? 0 : min;
+    }
+
+    public double getCostPerPixel() {
+        return costPerPixel;
+    }
+
+    @Override
+    public int estimate(Location node, Location target) {
+        return (int) (costPerPixel * pixelDistance(node, target));
+    }
+
+    private static double pixelDistance(Location a, Location b) {
+        return Math.hypot(a.getCenterX() - b.getCenterX(), a.getCenterY() - b.getCenterY());
+    }
+}
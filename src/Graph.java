@@ -1,6 +1,9 @@
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Consumer;
 
 public interface Graph<T> {
 
@@ -13,8 +16,49 @@ public interface Graph<T> {
     Set<T> getNodes();
     
     Collection<Edge<T>> getEdgesFrom(T node);
+
+    // Read views of the edges from a node, for loops that run often. Unlike getEdgesFrom they
+    // do not copy the edges: the view is unmodifiable but live, and forEachEdge walks the edges
+    // in place. Both throw NoSuchElementException if the node is not in the graph.
+    //
+    // Changing the weight of an edge while iterating is allowed and is seen by the iteration.
+    // Adding or removing edges or nodes while a view of the node is being iterated, including
+    // from inside forEachEdge, is not allowed; implementations detect it on a best-effort basis
+    // by throwing ConcurrentModificationException. Several threads may read at once, but not
+    // while another thread modifies the graph unless the implementation says otherwise.
+    default Collection<Edge<T>> getEdgesView(T node) {
+        return getEdgesFrom(node);
+    }
+
+    default void forEachEdge(T node, Consumer<? super Edge<T>> action) {
+        getEdgesView(node).forEach(action);
+    }
+    
+    // Whether an edge can exist without a twin in the opposite direction, as in DirectedGraph.
+    // Searches that walk edges backwards must then use getEdgesTo.
+    default boolean isDirected() {
+        return false;
+    }
+
+    // The edges that end in node, each paired with the node it starts from. The default works
+    // for undirected graphs, where these are the twins of the edges from node. The contract of
+    // getEdgesView applies.
+    default Collection<Map.Entry<T, Edge<T>>> getEdgesTo(T node) {
+        List<Map.Entry<T, Edge<T>>> incoming = new ArrayList<>();
+        for (Edge<T> edge : getEdgesView(node)) {
+            incoming.add(Map.entry(edge.getDestination(), getEdgeBetween(edge.getDestination(), node)));
+        }
+        return incoming;
+    }
     
+    // If the graph allows parallel edges between two nodes, the cheapest of them.
     Edge<T> getEdgeBetween(T node1, T node2);
+
+    // All edges from node1 to node2. Only graphs that allow parallel edges can have more than one.
+    default Collection<Edge<T>> getEdgesBetween(T node1, T node2) {
+        Edge<T> edge = getEdgeBetween(node1, node2);
+        return edge == null ? List.of() : List.of(edge);
+    }
     
     void disconnect(T node1, T node2);
     
@@ -23,4 +67,7 @@ public interface Graph<T> {
     boolean pathExists(T from, T to);
     
     List<Edge<T>> getPath(T from, T to);
+
+    // Cost of the shortest path, or -1 if there is no path.
+    int getDistance(T from, T to);
 }
@@ -0,0 +1,271 @@
+import java.util.*;
+
+/**
+ * One version of a {@link VersionedGraph}. A snapshot never changes, so any number of threads
+ * can search it while the graph goes on to newer versions, and a long search sees the graph as
+ * it was when the snapshot was taken. Consecutive versions share all nodes and edges that did
+ * not change between them.
+ * <p>
+ * All methods that would modify the graph throw {@link UnsupportedOperationException}. A
+ * snapshot is reclaimed by the garbage collector like any other object once nothing refers to
+ * it; nodes and edges still shared with newer versions stay.
+ */
+public final class GraphSnapshot<T> implements Graph<T> {
+    private static final GraphSnapshot<?> EMPTY = new GraphSnapshot<>(PersistentMap.empty(), 0, 0, 0);
+
+    private final PersistentMap<T, Vertex<T>> vertices;
+    private final long version;
+    // Every node id in this version is below idLimit. Ids freed by a remove are reused, so it
+    // follows the largest size the graph has had rather than the number of nodes ever added.
+    private final int idLimit;
+    // Largest weight in this or any earlier version; it picks the priority queue for Dijkstra.
+    private final int maxWeight;
+
+    GraphSnapshot(PersistentMap<T, Vertex<T>> vertices, long version, int idLimit, int maxWeight) {
+        this.vertices = vertices;
+        this.version = version;
+        this.idLimit = idLimit;
+        this.maxWeight = maxWeight;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T> GraphSnapshot<T> empty() {
+        return (GraphSnapshot<T>) EMPTY;
+    }
+
+    // Numbers the versions of a graph, starting from 0 for the empty graph.
+    public long version() {
+        return version;
+    }
+
+    PersistentMap<T, Vertex<T>> vertices() {
+        return vertices;
+    }
+
+    int idLimit() {
+        return idLimit;
+    }
+
+    int maxWeight() {
+        return maxWeight;
+    }
+
+    Vertex<T> vertex(T node) {
+        Vertex<T> vertex = vertices.get(node);
+        if (vertex == null) {
+            throw new NoSuchElementException("The node is not found");
+        }
+        return vertex;
+    }
+
+    @Override
+    public void add(T node) {
+        throw new UnsupportedOperationException("GraphSnapshot is read-only");
+    }
+
+    @Override
+    public void connect(T node1, T node2, String name, int weight) {
+        throw new UnsupportedOperationException("GraphSnapshot is read-only");
+    }
+
+    @Override
+    public void setConnectionWeight(T node1, T node2, int weight) {
+        throw new UnsupportedOperationException("GraphSnapshot is read-only");
+    }
+
+    @Override
+    public void disconnect(T node1, T node2) {
+        throw new UnsupportedOperationException("GraphSnapshot is read-only");
+    }
+
+    @Override
+    public void remove(T node) {
+        throw new UnsupportedOperationException("GraphSnapshot is read-only");
+    }
+
+    @Override
+    public Set<T> getNodes() {
+        return new AbstractSet<>() {
+            @Override
+            public Iterator<T> iterator() {
+                return vertices.keys().iterator();
+            }
+
+            @Override
+            public boolean contains(Object node) {
+                return vertices.containsKey(node);
+            }
+
+            @Override
+            public int size() {
+                return vertices.size();
+            }
+        };
+    }
+
+    // The edges of a snapshot never change, so there is nothing to copy.
+    @Override
+    public Collection<Edge<T>> getEdgesFrom(T node) {
+        PersistentMap<T, Edge<T>> edges = vertex(node).edges;
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<Edge<T>> iterator() {
+                return edges.values().iterator();
+            }
+
+            @Override
+            public int size() {
+                return edges.size();
+            }
+        };
+    }
+
+    @Override
+    public Collection<Edge<T>> getEdgesView(T node) {
+        return getEdgesFrom(node);
+    }
+
+    @Override
+    public Edge<T> getEdgeBetween(T node1, T node2) {
+        Vertex<T> vertex = vertex(node1);
+        vertex(node2);
+        return vertex.edges.get(node2);
+    }
+
+    @Override
+    public boolean pathExists(T from, T to) {
+        Vertex<T> source = vertices.get(from);
+        Vertex<T> target = vertices.get(to);
+        if (source == null || target == null) {
+            return false;
+        }
+        SearchWorkspace workspace = SearchWorkspace.acquire(idLimit);
+        try {
+            int[] queue = workspace.queue;
+            int head = 0;
+            int tail = 0;
+            workspace.reach(source.id, 0, source.id, null);
+            workspace.node[source.id] = source;
+            queue[tail++] = source.id;
+            while (head < tail) {
+                int node = queue[head++];
+                if (node == target.id) {
+                    return true;
+                }
+                for (T destination : vertexAt(workspace, node).edges.keys()) {
+                    Vertex<T> next = vertices.get(destination);
+                    if (!workspace.reached(next.id)) {
+                        workspace.reach(next.id, 0, node, null);
+                        workspace.node[next.id] = next;
+                        queue[tail++] = next.id;
+                    }
+                }
+            }
+            return false;
+        } finally {
+            workspace.release();
+        }
+    }
+
+    @Override
+    public List<Edge<T>> getPath(T from, T to) {
+        Vertex<T> source = vertices.get(from);
+        Vertex<T> target = vertices.get(to);
+        if (source == null || target == null) {
+            return null;
+        }
+        SearchWorkspace workspace = SearchWorkspace.acquire(idLimit);
+        try {
+            if (search(source, target, workspace) < 0) {
+                return null;
+            }
+            List<Edge<T>> path = new ArrayList<>();
+            for (int node = target.id; node != source.id; node = workspace.parent[node]) {
+                path.add(edgeTo(workspace, node));
+            }
+            Collections.reverse(path);
+            return path;
+        } finally {
+            workspace.release();
+        }
+    }
+
+    @Override
+    public int getDistance(T from, T to) {
+        Vertex<T> source = vertices.get(from);
+        Vertex<T> target = vertices.get(to);
+        if (source == null || target == null) {
+            return -1;
+        }
+        SearchWorkspace workspace = SearchWorkspace.acquire(idLimit);
+        try {
+            return search(source, target, workspace);
+        } finally {
+            workspace.release();
+        }
+    }
+
+    // Dijkstra that stops once target is settled, or -1.
+    private int search(Vertex<T> source, Vertex<T> target, SearchWorkspace workspace) {
+        LongPriorityQueue queue = workspace.priorityQueue(maxWeight);
+        workspace.reach(source.id, 0, source.id, null);
+        workspace.node[source.id] = source;
+        queue.add(LongMinHeap.pack(0, source.id));
+        while (!queue.isEmpty()) {
+            long entry = queue.poll();
+            int node = LongMinHeap.node(entry);
+            int distance = LongMinHeap.distance(entry);
+            if (distance > workspace.dist[node]) {
+                continue;
+            }
+            if (node == target.id) {
+                return distance;
+            }
+            for (Edge<T> edge : vertexAt(workspace, node).edges.values()) {
+                Vertex<T> next = vertices.get(edge.getDestination());
+                int altDistance = distance + edge.getWeight();
+                if (!workspace.reached(next.id) || altDistance < workspace.dist[next.id]) {
+                    workspace.reach(next.id, altDistance, node, edge);
+                    workspace.node[next.id] = next;
+                    queue.add(LongMinHeap.pack(altDistance, next.id));
+                }
+            }
+        }
+        return -1;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Vertex<T> vertexAt(SearchWorkspace workspace, int id) {
+        return (Vertex<T>) workspace.node[id];
+    }
+
+    @SuppressWarnings("unchecked")
+    private Edge<T> edgeTo(SearchWorkspace workspace, int node) {
+        return (Edge<T>) workspace.parentEdge[node];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder builder = new StringBuilder();
+        for (Map.Entry<T, Vertex<T>> node : vertices) {
+            builder.append(node.getKey());
+            for (Edge<T> edge : node.getValue().edges.values()) {
+                builder.append(edge.toString());
+            }
+        }
+        return builder.toString();
+    }
+
+    // A node and its edges in one version. A new version replaces the Vertex of every node
+    // whose edges changed and shares the others.
+    static final class Vertex<T> {
+        final int id;
+        // The edges from the node, keyed by destination.
+        final PersistentMap<T, Edge<T>> edges;
+
+        Vertex(int id, PersistentMap<T, Edge<T>> edges) {
+            this.id = id;
+            this.edges = edges;
+        }
+    }
+}
@@ -136,6 +136,45 @@ class GraphTest {
 		assertThrows(NoSuchElementException.class, () -> graph.remove(INVALID_NODE_1), NO_SUCH_ELEMENT_EXCEPTION_BORDE_HA_KASTATS);
 	}
 
+	@Test
+	@Order(43)
+	@DisplayName("Testar att ta bort nod som har en båge till sig själv.")
+	void test04_remove_node_with_loop() {
+		add(VALID_NODE_1, VALID_NODE_2, "C");
+		graph.connect(VALID_NODE_1, VALID_NODE_1, "Loop", 1);
+		connect(VALID_NODE_1, VALID_NODE_2, "Train", 2);
+		graph.connect("C", "C", "Loop", 1);
+
+		assertDoesNotThrow(() -> graph.remove(VALID_NODE_1), INGET_UNDANTAG_BORDE_HA_KASTATS);
+		assertFalse(graph.getNodes().contains(VALID_NODE_1), "Fel: grafen innehåller fortfarande noden efter remove.");
+		assertTrue(graph.getEdgesFrom(VALID_NODE_2).isEmpty(), "Fel: en båge leder fortfarande till en borttagen nod.");
+
+		assertDoesNotThrow(() -> ((ListGraph<String>) graph).removeAll(List.of("C")), INGET_UNDANTAG_BORDE_HA_KASTATS);
+		assertEquals(Set.of(VALID_NODE_2), graph.getNodes());
+	}
+
+	@Test
+	@Order(44)
+	@DisplayName("Testar att ta bort flera noder på en gång med removeAll.")
+	void test04_removeAll() {
+		createExampleGraph();
+		ListGraph<String> listGraph = (ListGraph<String>) graph;
+
+		assertThrows(NoSuchElementException.class, () -> listGraph.removeAll(List.of("B", INVALID_NODE_1)), NO_SUCH_ELEMENT_EXCEPTION_BORDE_HA_KASTATS);
+		assertTrue(graph.getNodes().contains("B"), "Fel: inga noder ska tas bort om en nod saknas.");
+
+		listGraph.removeAll(List.of("B", "D", "H"));
+
+		assertFalse(graph.getNodes().contains("B") || graph.getNodes().contains("D") || graph.getNodes().contains("H"), "Fel: grafen innehåller fortfarande en borttagen nod.");
+		for (String node : graph.getNodes()) {
+			for (Edge<String> edge : graph.getEdgesFrom(node)) {
+				assertTrue(graph.getNodes().contains(edge.getDestination()), "Fel: en båge leder fortfarande till en borttagen nod.");
+			}
+		}
+		assertNotNull(graph.getEdgeBetween("C", "E"));
+		assertFalse(graph.pathExists("A", "C"));
+	}
+
 	@Test
 	@Order(50)
 	@DisplayName("Testar getNodes.")
@@ -235,6 +274,52 @@ class GraphTest {
 		assertNull(graph.getEdgeBetween(VALID_NODE_1, "D"), ERROR_NONMISSING_EDGE);
 	}
 
+	@Test
+	@Order(86)
+	@DisplayName("Testar flera förbindelser med olika namn mellan samma noder.")
+	void test08_parallel_edges() {
+		createExampleGraph();
+		graph.connect(VALID_NODE_2, "D", "Tåg", 7);
+		graph.connect(VALID_NODE_2, "D", "Flyg", 1);
+		assertThrows(IllegalStateException.class, () -> graph.connect("D", VALID_NODE_2, "Tåg", 3), ILLEGAL_STATE_EXCEPTION_BORDE_HA_KASTATS);
+
+		assertEquals(3, graph.getEdgesBetween(VALID_NODE_2, "D").size());
+		assertEquals(3, graph.getEdgesBetween("D", VALID_NODE_2).size());
+		assertEquals("Flyg", graph.getEdgeBetween(VALID_NODE_2, "D").getName(), "Fel: getEdgeBetween borde ge den billigaste bågen.");
+		assertEquals(6, graph.getEdgesFrom(VALID_NODE_2).size());
+		assertEquals(32, graph.getDistance(VALID_NODE_1, "D"));
+
+		// Vikten ändras direkt på bågen, och den billigaste bågen måste ändå följa med
+		graph.getEdgeBetween(VALID_NODE_2, "D").setWeight(20);
+		assertEquals("B -> D", graph.getEdgeBetween(VALID_NODE_2, "D").getName());
+		assertEquals(33, graph.getDistance(VALID_NODE_1, "D"));
+		assertEquals("B -> D", graph.getPath(VALID_NODE_1, "D").get(2).getName());
+
+		graph.setConnectionWeight(VALID_NODE_2, "D", 50);
+		assertEquals("Tåg", graph.getEdgeBetween(VALID_NODE_2, "D").getName());
+		assertEquals(50, graph.getEdgesBetween("D", VALID_NODE_2).stream()
+				.filter(edge -> edge.getName().equals("B -> D")).findFirst().orElseThrow().getWeight());
+	}
+
+	@Test
+	@Order(88)
+	@DisplayName("Testar disconnect av en av flera förbindelser mellan samma noder.")
+	void test08_disconnect_parallel_edge() {
+		createExampleGraph();
+		ListGraph<String> listGraph = (ListGraph<String>) graph;
+		listGraph.connect(VALID_NODE_2, "D", "Flyg", 1);
+		listGraph.disconnect(VALID_NODE_2, "D", "Flyg");
+		assertThrows(IllegalStateException.class, () -> listGraph.disconnect(VALID_NODE_2, "D", "Flyg"), ILLEGAL_STATE_EXCEPTION_BORDE_HA_KASTATS);
+		assertEquals(List.of("B -> D"), graph.getEdgesBetween("D", VALID_NODE_2).stream().map(Edge::getName).toList());
+
+		listGraph.connect(VALID_NODE_2, "D", "Flyg", 1);
+		listGraph.connect(VALID_NODE_2, "D", "Tåg", 1);
+		graph.disconnect(VALID_NODE_2, "D");
+		assertNull(graph.getEdgeBetween("D", VALID_NODE_2), ERROR_NONMISSING_EDGE);
+		assertEquals(3, graph.getEdgesFrom(VALID_NODE_2).size());
+		assertEquals(38, graph.getDistance(VALID_NODE_1, "D"));
+	}
+
 	@Test
 	@Order(90)
 	@DisplayName("Testar getEdgesFrom för nod som finns och har bågar.")
@@ -274,6 +359,62 @@ class GraphTest {
 		assertThrows(NoSuchElementException.class, () -> graph.getEdgesFrom(INVALID_NODE_1), NO_SUCH_ELEMENT_EXCEPTION_BORDE_HA_KASTATS);
 	}
 
+	@Test
+	@Order(96)
+	@DisplayName("Testar getEdgesView och forEachEdge.")
+	void test09_edgesView() {
+		createExampleGraph();
+
+		var view = graph.getEdgesView(VALID_NODE_3);
+		assertEquals(2, view.size());
+		assertThrows(UnsupportedOperationException.class, () -> view.clear(), "Fel: vyn ska inte gå att ändra.");
+
+		List<String> destinations = new ArrayList<>();
+		graph.forEachEdge(VALID_NODE_3, edge -> destinations.add(edge.getDestination()));
+		assertEquals(Set.of(VALID_NODE_1, "B"), new HashSet<>(destinations));
+
+		graph.disconnect(VALID_NODE_1, VALID_NODE_3);
+		assertEquals(1, view.size(), "Fel: vyn ska visa ändringar i grafen.");
+
+		// Parallella bågar gås igenom där de ligger, utan att kopieras
+		graph.connect(VALID_NODE_3, "B", "Bus", 1);
+		assertEquals(2, view.size());
+		Set<String> names = new HashSet<>();
+		view.forEach(edge -> names.add(edge.getName()));
+		assertTrue(names.contains("Bus"));
+		Iterator<Edge<String>> edges = view.iterator();
+		assertNotNull(edges.next());
+		graph.connect(VALID_NODE_3, "B", "Boat", 2);
+		assertThrows(ConcurrentModificationException.class, edges::next, "Fel: vyn ska visa ändringar i grafen.");
+		assertThrows(ConcurrentModificationException.class, () -> graph.forEachEdge("B", edge -> graph.disconnect("B", edge.getDestination())));
+		assertThrows(NoSuchElementException.class, () -> graph.forEachEdge(INVALID_NODE_1, edge -> {}), NO_SUCH_ELEMENT_EXCEPTION_BORDE_HA_KASTATS);
+	}
+
+	@Test
+	@Order(98)
+	@DisplayName("Testar en nod med många bågar som sedan kopplas bort igen.")
+	void test09_hub_with_many_edges() {
+		ListGraph<Integer> hub = new ListGraph<>();
+		hub.add(0);
+		for (int i = 1; i <= 20; i++) {
+			hub.add(i);
+			hub.connect(0, i, "0 -> " + i, i);
+		}
+		assertEquals(20, hub.getEdgesFrom(0).size());
+		assertEquals(13, hub.getEdgeBetween(13, 0).getWeight());
+		assertThrows(IllegalStateException.class, () -> hub.connect(0, 13, "0 -> 13", 1), ILLEGAL_STATE_EXCEPTION_BORDE_HA_KASTATS);
+		assertEquals(5, hub.getDistance(2, 3));
+
+		for (int i = 1; i <= 17; i++) {
+			hub.disconnect(i, 0);
+		}
+		assertEquals(3, hub.getEdgesView(0).size());
+		assertNull(hub.getEdgeBetween(0, 5));
+		assertEquals(18, hub.getEdgeBetween(0, 18).getWeight());
+		assertEquals(39, hub.getDistance(19, 20));
+		assertFalse(hub.pathExists(1, 20));
+	}
+
 	@Test
 	@Order(100)
 	@DisplayName("Testar pathExists för noder som finns och har en väg mellan sig.")
@@ -307,6 +448,27 @@ class GraphTest {
 		assertFalse(graph.pathExists(VALID_NODE_1, VALID_NODE_NOT_CONNECTED));
 	}
 
+	@Test
+	@Order(106)
+	@DisplayName("Testar pathExists på en lång kedja före och efter disconnect.")
+	void test10_pathExists_long_chain() {
+		Graph<Integer> chain = new ListGraph<>();
+		int length = 30_000;
+		for (int i = 0; i < length; i++) {
+			chain.add(i);
+			if (i > 0) {
+				chain.connect(i - 1, i, (i - 1) + " -> " + i, 1);
+			}
+		}
+		assertTrue(chain.pathExists(0, length - 1), "Fel: det borde ha funnits en väg mellan noderna.");
+
+		chain.disconnect(length / 2, length / 2 + 1);
+		for (int i = 0; i < 10; i++) {
+			assertFalse(chain.pathExists(0, length - 1), ERROR_NONMISSING_PATH);
+			assertTrue(chain.pathExists(0, length / 2), "Fel: det borde ha funnits en väg mellan noderna.");
+		}
+	}
+
 	@Test
 	@Order(110)
 	@DisplayName("Testar getPath för noder som har en väg.")
@@ -328,6 +490,50 @@ class GraphTest {
 		assertNull(invalidPath, ERROR_NONMISSING_PATH);
 	}
 
+	@Test
+	@Order(112)
+	@DisplayName("Testar getDistance för noder med och utan väg.")
+	void test11_getDistance() {
+		createExampleGraph();
+		assertEquals(31, graph.getDistance(VALID_NODE_1, VALID_NODE_2), "Fel: kortaste vägen mellan noderna borde kosta 31.");
+		assertEquals(0, graph.getDistance(VALID_NODE_1, VALID_NODE_1), "Fel: avståndet till samma nod borde vara 0.");
+		assertEquals(-1, graph.getDistance(VALID_NODE_1, VALID_NODE_NOT_CONNECTED), ERROR_NONMISSING_PATH);
+		assertEquals(-1, graph.getDistance(VALID_NODE_1, INVALID_NODE_1), ERROR_NONMISSING_PATH);
+	}
+
+	@Test
+	@Order(114)
+	@DisplayName("Testar upprepade sökningar när noder tas bort och läggs till.")
+	void test11_repeated_searches_after_remove() {
+		createExampleGraph();
+		assertEquals(31, graph.getDistance(VALID_NODE_1, VALID_NODE_2));
+
+		graph.remove("H");
+		assertEquals(34, graph.getDistance(VALID_NODE_1, "I"), "Fel: vägen genom den borttagna noden ska inte användas.");
+
+		graph.add("K");
+		graph.connect("K", "F", "K -> F", 1);
+		graph.connect("K", "I", "K -> I", 1);
+		assertEquals(35, graph.getDistance(VALID_NODE_1, "K"));
+		assertEquals(List.of("K", "I"), graph.getPath("F", "I").stream().map(Edge<String>::getDestination).toList());
+		assertEquals(-1, graph.getDistance("K", VALID_NODE_NOT_CONNECTED));
+	}
+
+	@Test
+	@Order(116)
+	@DisplayName("Testar kortaste vägen när en båge görs tyngre direkt och när vikterna är stora.")
+	void test11_getDistance_heavy_edges() {
+		createExampleGraph();
+		// Bågen ändras utan setConnectionWeight, så grafen vet inte om den nya största vikten
+		graph.getEdgeBetween("B", "D").setWeight(5000);
+		assertEquals(38, graph.getDistance(VALID_NODE_1, "D"));
+		assertEquals(2, graph.getDistance("D", "B"));
+
+		graph.setConnectionWeight("G", "B", 100_000);
+		assertEquals(100_003, graph.getDistance(VALID_NODE_1, "B"));
+		assertEquals(100_010, graph.getDistance(VALID_NODE_1, "D"));
+	}
+
 	@Test
 	@Order(122)
 	@DisplayName("Testar setConnectionWeight för nod som inte finns.")
@@ -342,6 +548,8 @@ class GraphTest {
 	void test12_setConnectionWeight_invalid_weight() {
 		createExampleGraph();
 		assertThrows(IllegalArgumentException.class, () -> graph.setConnectionWeight(VALID_NODE_1, VALID_NODE_3, -1), ILLEGAL_ARGUMENT_EXCEPTION_BORDE_HA_KASTATS);
+		// Vikten kontrolleras innan bågen söks upp, även när noderna inte har någon båge
+		assertThrows(IllegalArgumentException.class, () -> graph.setConnectionWeight(VALID_NODE_1, VALID_NODE_NOT_CONNECTED, -1), ILLEGAL_ARGUMENT_EXCEPTION_BORDE_HA_KASTATS);
 	}
 
 	@Test
@@ -0,0 +1,14 @@
+/**
+ * A lower bound on the remaining cost from a node to the target, used by {@link AStarSearch}.
+ * The estimate must never be larger than the real shortest distance, otherwise the search
+ * can return paths that are not the shortest.
+ */
+@FunctionalInterface
+public interface Heuristic<T> {
+
+    int estimate(T node, T target);
+
+    static <T> Heuristic<T> zero() {
+        return (node, target) -> 0;
+    }
+}
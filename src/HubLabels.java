@@ -0,0 +1,274 @@
+import java.util.*;
+
+/**
+ * A hub labeling distance oracle over a {@link Graph}, for answering many distance queries
+ * when the path itself is not needed.
+ * <p>
+ * Every node v gets an out-label of (hub, d(v, hub)) pairs and an in-label of (hub, d(hub, v))
+ * pairs, chosen so that for any u and v some shortest path from u to v passes through a hub in
+ * both the out-label of u and the in-label of v. A query is then a merge of two label arrays
+ * sorted by hub, without touching the graph. The labels are computed by pruned landmark
+ * labeling: a Dijkstra search from every node, separators of a nested dissection first, pruned
+ * wherever the labels found so far already give the right distance.
+ * <p>
+ * Labels are stored in flat primitive arrays. The index does not follow changes to the graph;
+ * build a new one when the graph or its weights change.
+ */
+public class HubLabels<T> {
+    private final Map<T, Integer> ids;
+    private final int nodeCount;
+
+    // The label of node v is the slots offsets[v] .. offsets[v + 1] - 1, sorted by hub rank.
+    private final int[] outOffsets;
+    private final int[] outHubs;
+    private final int[] outDistances;
+    private final int[] inOffsets;
+    private final int[] inHubs;
+    private final int[] inDistances;
+
+    public HubLabels(Graph<T> graph) {
+        int n = graph.getNodes().size();
+        nodeCount = n;
+        ids = new HashMap<>(n * 2);
+        List<T> nodes = hubOrder(graph);
+        for (T node : nodes) {
+            ids.put(node, ids.size());
+        }
+
+        int[] offsets = new int[n + 1];
+        int[] reverseOffsets = new int[n + 1];
+        for (int u = 0; u < n; u++) {
+            for (Edge<T> edge : graph.getEdgesFrom(nodes.get(u))) {
+                offsets[u + 1]++;
+                reverseOffsets[ids.get(edge.getDestination()) + 1]++;
+            }
+        }
+        for (int u = 0; u < n; u++) {
+            offsets[u + 1] += offsets[u];
+            reverseOffsets[u + 1] += reverseOffsets[u];
+        }
+        int[] targets = new int[offsets[n]];
+        int[] weights = new int[offsets[n]];
+        int[] reverseTargets = new int[offsets[n]];
+        int[] reverseWeights = new int[offsets[n]];
+        int[] fill = Arrays.copyOf(offsets, n);
+        int[] reverseFill = Arrays.copyOf(reverseOffsets, n);
+        for (int u = 0; u < n; u++) {
+            for (Edge<T> edge : graph.getEdgesFrom(nodes.get(u))) {
+                int v = ids.get(edge.getDestination());
+                targets[fill[u]] = v;
+                weights[fill[u]++] = edge.getWeight();
+                reverseTargets[reverseFill[v]] = u;
+                reverseWeights[reverseFill[v]++] = edge.getWeight();
+            }
+        }
+
+        Labeling out = new Labeling(n);
+        Labeling in = new Labeling(n);
+        int[] hubDistance = new int[n];
+        Arrays.fill(hubDistance, Integer.MAX_VALUE);
+        int[] dist = new int[n];
+        int[] seen = new int[n];
+        LongMinHeap heap = new LongMinHeap();
+        int generation = 0;
+        // Node ids are ranks, so hub h is handled when all hubs ranked before it already have labels
+        for (int h = 0; h < n; h++) {
+            // Forward search: d(h, v) goes into the in-label of v, pruned with out(h) and in(v)
+            generation = prunedSearch(h, offsets, targets, weights, out, in, hubDistance, dist, seen, heap, generation);
+            // Backward search: d(v, h) goes into the out-label of v, pruned with out(v) and in(h)
+            generation = prunedSearch(h, reverseOffsets, reverseTargets, reverseWeights, in, out, hubDistance, dist, seen, heap, generation);
+        }
+
+        outOffsets = out.offsets();
+        outHubs = out.hubs();
+        outDistances = out.distances();
+        inOffsets = in.offsets();
+        inHubs = in.hubs();
+        inDistances = in.distances();
+    }
+
+    /**
+     * Separator nodes lie on many shortest paths, so the nested dissection order of
+     * {@link CustomizableContractionHierarchy}, reversed, puts the most useful hubs first.
+     */
+    private static <T> List<T> hubOrder(Graph<T> graph) {
+        List<T> nodes = new ArrayList<>(graph.getNodes());
+        Map<T, Integer> index = new HashMap<>(nodes.size() * 2);
+        for (T node : nodes) {
+            index.put(node, index.size());
+        }
+        IntArrayList[] neighbours = new IntArrayList[nodes.size()];
+        for (int u = 0; u < nodes.size(); u++) {
+            neighbours[u] = new IntArrayList();
+        }
+        for (int u = 0; u < nodes.size(); u++) {
+            for (Edge<T> edge : graph.getEdgesFrom(nodes.get(u))) {
+                int v = index.get(edge.getDestination());
+                neighbours[u].add(v);
+                neighbours[v].add(u);
+            }
+        }
+        int[] order = CustomizableContractionHierarchy.nestedDissection(neighbours);
+        List<T> hubs = new ArrayList<>(nodes.size());
+        for (int i = order.length - 1; i >= 0; i--) {
+            hubs.add(nodes.get(order[i]));
+        }
+        return hubs;
+    }
+
+    /**
+     * Dijkstra from hub h. Every node v it settles gets (h, d) in its {@code labels} unless the
+     * existing labels, {@code hubSide} of h merged with {@code labels} of v, already give d.
+     */
+    private static int prunedSearch(int h, int[] offsets, int[] targets, int[] weights,
+                                    Labeling hubSide, Labeling labels, int[] hubDistance,
+                                    int[] dist, int[] seen, LongMinHeap heap, int generation) {
+        generation++;
+        IntArrayList hHubs = hubSide.hubs[h];
+        IntArrayList hDistances = hubSide.distances[h];
+        for (int i = 0; i < hHubs.size(); i++) {
+            hubDistance[hHubs.get(i)] = hDistances.get(i);
+        }
+        hubDistance[h] = 0;
+
+        heap.clear();
+        seen[h] = generation;
+        dist[h] = 0;
+        heap.add(LongMinHeap.pack(0, h));
+        while (!heap.isEmpty()) {
+            long entry = heap.poll();
+            int v = LongMinHeap.node(entry);
+            int d = LongMinHeap.distance(entry);
+            if (d > dist[v]) {
+                continue;
+            }
+            if (v < h || covered(labels, v, hubDistance, d)) {
+                continue;
+            }
+            labels.hubs[v].add(h);
+            labels.distances[v].add(d);
+            for (int e = offsets[v]; e < offsets[v + 1]; e++) {
+                int w = targets[e];
+                int alt = d + weights[e];
+                if (seen[w] != generation || alt < dist[w]) {
+                    seen[w] = generation;
+                    dist[w] = alt;
+                    heap.add(LongMinHeap.pack(alt, w));
+                }
+            }
+        }
+
+        for (int i = 0; i < hHubs.size(); i++) {
+            hubDistance[hHubs.get(i)] = Integer.MAX_VALUE;
+        }
+        hubDistance[h] = Integer.MAX_VALUE;
+        return generation;
+    }
+
+    private static boolean covered(Labeling labels, int v, int[] hubDistance, int d) {
+        IntArrayList hubs = labels.hubs[v];
+        IntArrayList distances = labels.distances[v];
+        for (int i = 0; i < hubs.size(); i++) {
+            int toHub = hubDistance[hubs.get(i)];
+            if (toHub != Integer.MAX_VALUE && toHub + distances.get(i) <= d) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * The shortest distance from {@code from} to {@code to}, or -1 if there is no path or a node
+     * is not in the index.
+     */
+    public int getDistance(T from, T to) {
+        Integer u = ids.get(from);
+        Integer v = ids.get(to);
+        if (u == null || v == null) {
+            return -1;
+        }
+        long best = Long.MAX_VALUE;
+        int i = outOffsets[u];
+        int j = inOffsets[v];
+        int outEnd = outOffsets[u + 1];
+        int inEnd = inOffsets[v + 1];
+        while (i < outEnd && j < inEnd) {
+            if (outHubs[i] == inHubs[j]) {
+                best = Math.min(best, (long) outDistances[i] + inDistances[j]);
+                i++;
+                j++;
+            } else if (outHubs[i] < inHubs[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return best == Long.MAX_VALUE ? -1 : (int) best;
+    }
+
+    public int labelEntries() {
+        return outHubs.length + inHubs.length;
+    }
+
+    public double averageLabelSize() {
+        return nodeCount == 0 ? 0 : (double) labelEntries() / (2 * nodeCount);
+    }
+
+    // Bytes used by the label arrays, not counting the node to id map.
+    public long footprintBytes() {
+        return 4L * (outOffsets.length + outHubs.length + outDistances.length
+                + inOffsets.length + inHubs.length + inDistances.length);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("HubLabels[%d nodes, %d label entries, %.1f per label, %d KiB]",
+                nodeCount, labelEntries(), averageLabelSize(), footprintBytes() / 1024);
+    }
+
+    // Labels while they are being built, one growable list pair per node.
+    private static class Labeling {
+        private final IntArrayList[] hubs;
+        private final IntArrayList[] distances;
+
+        private Labeling(int n) {
+            hubs = new IntArrayList[n];
+            distances = new IntArrayList[n];
+            for (int v = 0; v < n; v++) {
+                hubs[v] = new IntArrayList(2);
+                distances[v] = new IntArrayList(2);
+            }
+        }
+
+        private int[] offsets() {
+            int[] offsets = new int[hubs.length + 1];
+            for (int v = 0; v < hubs.length; v++) {
+                offsets[v + 1] = offsets[v] + hubs[v].size();
+            }
+            return offsets;
+        }
+
+        private int[] hubs() {
+            return flatten(hubs);
+        }
+
+        private int[] distances() {
+            return flatten(distances);
+        }
+
+        private static int[] flatten(IntArrayList[] lists) {
+            int size = 0;
+            for (IntArrayList list : lists) {
+                size += list.size();
+            }
+            int[] flat = new int[size];
+            int next = 0;
+            for (IntArrayList list : lists) {
+                for (int i = 0; i < list.size(); i++) {
+                    flat[next++] = list.get(i);
+                }
+            }
+            return flat;
+        }
+    }
+}
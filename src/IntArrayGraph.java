@@ -0,0 +1,223 @@
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/**
+ * An {@link IntGraph} that keeps the edges of every node in its own pair of growable int
+ * arrays, one for targets and one for weights. Searches keep their state in a pooled
+ * {@link SearchWorkspace}, so a query allocates only the path it returns.
+ * <p>
+ * Queries may run on several threads at once, but not while the graph is being modified.
+ */
+public class IntArrayGraph implements IntGraph {
+    private static final int[] NO_EDGES = new int[0];
+
+    private int nodeCount;
+    private int[][] targets;
+    private int[][] weights;
+    private int[] degrees;
+    // Largest weight ever set; it picks the priority queue for Dijkstra.
+    private int maxWeight;
+
+    public IntArrayGraph() {
+        this(16);
+    }
+
+    public IntArrayGraph(int expectedNodes) {
+        int capacity = Math.max(expectedNodes, 1);
+        targets = new int[capacity][];
+        weights = new int[capacity][];
+        degrees = new int[capacity];
+    }
+
+    @Override
+    public int addNode() {
+        if (nodeCount == degrees.length) {
+            int capacity = nodeCount * 2;
+            targets = Arrays.copyOf(targets, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+            degrees = Arrays.copyOf(degrees, capacity);
+        }
+        targets[nodeCount] = NO_EDGES;
+        weights[nodeCount] = NO_EDGES;
+        return nodeCount++;
+    }
+
+    @Override
+    public int nodeCount() {
+        return nodeCount;
+    }
+
+    private void check(int node) {
+        if (node < 0 || node >= nodeCount) {
+            throw new NoSuchElementException("The node is not found");
+        }
+    }
+
+    @Override
+    public void connect(int node1, int node2, int weight) {
+        check(node1);
+        check(node2);
+        if (weight < 0) {
+            throw new IllegalArgumentException("The weight is negative");
+        }
+        if (indexOf(node1, node2) >= 0) {
+            throw new IllegalStateException("The edge already exists");
+        }
+        append(node1, node2, weight);
+        maxWeight = Math.max(maxWeight, weight);
+        if (node1 != node2) {
+            append(node2, node1, weight);
+        }
+    }
+
+    private void append(int from, int to, int weight) {
+        int degree = degrees[from];
+        if (degree == targets[from].length) {
+            int capacity = Math.max(4, degree * 2);
+            targets[from] = Arrays.copyOf(targets[from], capacity);
+            weights[from] = Arrays.copyOf(weights[from], capacity);
+        }
+        targets[from][degree] = to;
+        weights[from][degree] = weight;
+        degrees[from] = degree + 1;
+    }
+
+    @Override
+    public void setConnectionWeight(int node1, int node2, int weight) {
+        if (weight < 0) {
+            throw new IllegalArgumentException("The weight is negative");
+        }
+        int index1 = indexOf(node1, node2);
+        int index2 = indexOf(node2, node1);
+        if (index1 < 0 || index2 < 0) {
+            throw new IllegalStateException("The nodes are not connected");
+        }
+        weights[node1][index1] = weight;
+        weights[node2][index2] = weight;
+        maxWeight = Math.max(maxWeight, weight);
+    }
+
+    @Override
+    public void disconnect(int node1, int node2) {
+        int index1 = indexOf(node1, node2);
+        if (index1 < 0) {
+            throw new IllegalStateException("The nodes are not connected");
+        }
+        removeAt(node1, index1);
+        if (node1 != node2) {
+            removeAt(node2, indexOf(node2, node1));
+        }
+    }
+
+    // Moves the last edge of the node into the hole, so removal does not shift the row.
+    private void removeAt(int node, int index) {
+        int last = --degrees[node];
+        targets[node][index] = targets[node][last];
+        weights[node][index] = weights[node][last];
+    }
+
+    @Override
+    public int degree(int node) {
+        check(node);
+        return degrees[node];
+    }
+
+    @Override
+    public int target(int node, int index) {
+        return targets[node][index];
+    }
+
+    @Override
+    public int weight(int node, int index) {
+        return weights[node][index];
+    }
+
+    @Override
+    public int indexOf(int from, int to) {
+        check(from);
+        check(to);
+        int[] row = targets[from];
+        for (int i = 0; i < degrees[from]; i++) {
+            if (row[i] == to) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    @Override
+    public boolean pathExists(int from, int to) {
+        return getDistance(from, to) >= 0;
+    }
+
+    @Override
+    public int[] getPath(int from, int to) {
+        if (!contains(from) || !contains(to)) {
+            return null;
+        }
+        SearchWorkspace workspace = SearchWorkspace.acquire(nodeCount);
+        try {
+            if (search(from, to, workspace) < 0) {
+                return null;
+            }
+            int[] parent = workspace.parent;
+            int length = 1;
+            for (int v = to; v != from; v = parent[v]) {
+                length++;
+            }
+            int[] path = new int[length];
+            for (int v = to; length > 0; v = parent[v]) {
+                path[--length] = v;
+            }
+            return path;
+        } finally {
+            workspace.release();
+        }
+    }
+
+    @Override
+    public int getDistance(int from, int to) {
+        if (!contains(from) || !contains(to)) {
+            return -1;
+        }
+        SearchWorkspace workspace = SearchWorkspace.acquire(nodeCount);
+        try {
+            return search(from, to, workspace);
+        } finally {
+            workspace.release();
+        }
+    }
+
+    private boolean contains(int node) {
+        return node >= 0 && node < nodeCount;
+    }
+
+    private int search(int from, int to, SearchWorkspace workspace) {
+        LongPriorityQueue heap = workspace.priorityQueue(maxWeight);
+        int[] dist = workspace.dist;
+        workspace.reach(from, 0, from, null);
+        heap.add(LongMinHeap.pack(0, from));
+        while (!heap.isEmpty()) {
+            long entry = heap.poll();
+            int u = LongMinHeap.node(entry);
+            int d = LongMinHeap.distance(entry);
+            if (d > dist[u]) {
+                continue;
+            }
+            if (u == to) {
+                return d;
+            }
+            int[] row = targets[u];
+            int[] rowWeights = weights[u];
+            for (int i = 0; i < degrees[u]; i++) {
+                int v = row[i];
+                int alt = d + rowWeights[i];
+                if (!workspace.reached(v) || alt < dist[v]) {
+                    workspace.reach(v, alt, u, null);
+                    heap.add(LongMinHeap.pack(alt, v));
+                }
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,53 @@
+import java.util.Arrays;
+
+/**
+ * A growable list of primitive ints, used where a {@code List<Integer>} would box every element.
+ */
+class IntArrayList {
+    private int[] values;
+    private int size;
+
+    IntArrayList() {
+        this(4);
+    }
+
+    IntArrayList(int capacity) {
+        values = new int[Math.max(capacity, 1)];
+    }
+
+    void add(int value) {
+        if (size == values.length) {
+            values = Arrays.copyOf(values, size * 2);
+        }
+        values[size++] = value;
+    }
+
+    int get(int index) {
+        return values[index];
+    }
+
+    void set(int index, int value) {
+        values[index] = value;
+    }
+
+    // Removes the element at index by moving the last element into its place.
+    void removeAtUnordered(int index) {
+        values[index] = values[--size];
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    void clear() {
+        size = 0;
+    }
+
+    int[] toArray() {
+        return Arrays.copyOf(values, size);
+    }
+}
@@ -0,0 +1,39 @@
+/**
+ * A graph whose nodes are the dense ints {@code 0 .. nodeCount() - 1}, for routing code that
+ * cannot afford boxing or hashing on its hot paths. Like {@link Graph} every connection is
+ * mirrored, so {@code connect(a, b, w)} creates an edge from a to b and one from b to a.
+ * <p>
+ * The edges of a node are read by position: {@code target(node, i)} and {@code weight(node, i)}
+ * for {@code i < degree(node)}. Positions change when an edge of the node is removed. Use
+ * {@link IntGraphAdapter} to run an existing {@code Graph<T>} on an IntGraph.
+ */
+public interface IntGraph {
+
+    // Adds a node and returns its id, which is the previous node count.
+    int addNode();
+
+    int nodeCount();
+
+    void connect(int node1, int node2, int weight);
+
+    void setConnectionWeight(int node1, int node2, int weight);
+
+    void disconnect(int node1, int node2);
+
+    int degree(int node);
+
+    int target(int node, int index);
+
+    int weight(int node, int index);
+
+    // Position of the edge to "to" among the edges of "from", or -1 if they are not connected.
+    int indexOf(int from, int to);
+
+    boolean pathExists(int from, int to);
+
+    // The nodes of a shortest path, starting with from and ending with to, or null if there is none.
+    int[] getPath(int from, int to);
+
+    // Cost of the shortest path, or -1 if there is no path.
+    int getDistance(int from, int to);
+}
@@ -0,0 +1,122 @@
+import java.util.*;
+
+/**
+ * Runs a {@link Graph} on an {@link IntGraph}. The adapter keeps an id registry that gives every
+ * node a dense int id, and translates nodes to ids on the way in and back on the way out. The
+ * searches themselves only touch the IntGraph.
+ * <p>
+ * IntGraph connections are always mirrored, so a directed graph is rejected, and there is at most
+ * one between two nodes, so of parallel connections only the cheapest is copied. The adapter copies
+ * the graph when it is created and then follows the changes made through it; changes made
+ * directly to the source graph afterwards are not seen.
+ */
+public class IntGraphAdapter<T> {
+    private final IntGraph graph;
+    private final Map<T, Integer> ids = new HashMap<>();
+    private final List<T> nodes = new ArrayList<>();
+
+    public IntGraphAdapter(Graph<T> source) {
+        this(source, new IntArrayGraph(source.getNodes().size()));
+    }
+
+    // Copies source into target, which must be empty.
+    public IntGraphAdapter(Graph<T> source, IntGraph target) {
+        if (source.isDirected()) {
+            throw new IllegalArgumentException("IntGraph cannot hold one-way edges");
+        }
+        if (target.nodeCount() != 0) {
+            throw new IllegalArgumentException("The target graph is not empty");
+        }
+        graph = target;
+        for (T node : source.getNodes()) {
+            add(node);
+        }
+        for (T node : source.getNodes()) {
+            int from = ids.get(node);
+            for (Edge<T> edge : source.getEdgesView(node)) {
+                int to = ids.get(edge.getDestination());
+                // Every connection is listed from both ends, and parallel connections once each;
+                // copy only the cheapest, once
+                if (from <= to && graph.indexOf(from, to) < 0) {
+                    graph.connect(from, to, source.getEdgeBetween(node, edge.getDestination()).getWeight());
+                }
+            }
+        }
+    }
+
+    public IntGraph getGraph() {
+        return graph;
+    }
+
+    // The id of the node, adding it to the graph if it is new.
+    public int add(T node) {
+        Integer id = ids.get(node);
+        if (id == null) {
+            id = graph.addNode();
+            ids.put(node, id);
+            nodes.add(node);
+        }
+        return id;
+    }
+
+    // The id of the node, or -1 if it is not in the graph.
+    public int id(T node) {
+        Integer id = ids.get(node);
+        return id == null ? -1 : id;
+    }
+
+    public T node(int id) {
+        return nodes.get(id);
+    }
+
+    public void connect(T node1, T node2, int weight) {
+        graph.connect(idOf(node1), idOf(node2), weight);
+    }
+
+    public void setConnectionWeight(T node1, T node2, int weight) {
+        graph.setConnectionWeight(idOf(node1), idOf(node2), weight);
+    }
+
+    public void disconnect(T node1, T node2) {
+        graph.disconnect(idOf(node1), idOf(node2));
+    }
+
+    private int idOf(T node) {
+        Integer id = ids.get(node);
+        if (id == null) {
+            throw new NoSuchElementException("The node is not found");
+        }
+        return id;
+    }
+
+    public boolean pathExists(T from, T to) {
+        return getDistance(from, to) >= 0;
+    }
+
+    public int getDistance(T from, T to) {
+        int source = id(from);
+        int target = id(to);
+        if (source < 0 || target < 0) {
+            return -1;
+        }
+        return graph.getDistance(source, target);
+    }
+
+    // The nodes of a shortest path, starting with from and ending with to, or null if there is none.
+    public List<T> getPath(T from, T to) {
+        int source = id(from);
+        int target = id(to);
+        if (source < 0 || target < 0) {
+            return null;
+        }
+        int[] path = graph.getPath(source, target);
+        if (path == null) {
+            return null;
+        }
+        List<T> result = new ArrayList<>(path.length);
+        for (int id : path) {
+            result.add(nodes.get(id));
+        }
+        return result;
+    }
+}
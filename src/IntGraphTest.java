@@ -0,0 +1,100 @@
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntGraphTest {
+	private final IntGraph graph = new IntArrayGraph(2);
+
+	@BeforeEach
+	void setUp() {
+		for (int i = 0; i < 6; i++) {
+			graph.addNode();
+		}
+		graph.connect(0, 1, 4);
+		graph.connect(0, 2, 1);
+		graph.connect(2, 1, 2);
+		graph.connect(1, 3, 5);
+		graph.connect(3, 4, 3);
+	}
+
+	@Test
+	@DisplayName("Testar bågar, vikter och borttagning i IntGraph.")
+	void edgesAreMirrored() {
+		assertEquals(6, graph.nodeCount());
+		assertEquals(3, graph.degree(1));
+		assertEquals(4, graph.weight(1, graph.indexOf(1, 0)));
+		assertEquals(-1, graph.indexOf(0, 4));
+		assertThrows(IllegalStateException.class, () -> graph.connect(1, 0, 7));
+		assertThrows(NoSuchElementException.class, () -> graph.connect(0, 6, 1));
+
+		graph.setConnectionWeight(1, 0, 9);
+		assertEquals(9, graph.weight(0, graph.indexOf(0, 1)));
+
+		graph.disconnect(2, 0);
+		assertEquals(-1, graph.indexOf(0, 2));
+		assertEquals(-1, graph.indexOf(2, 0));
+		assertEquals(1, graph.degree(0));
+		assertThrows(IllegalStateException.class, () -> graph.disconnect(0, 2));
+	}
+
+	@Test
+	@DisplayName("Testar vägsökning i IntGraph.")
+	void searchFindsShortestPaths() {
+		assertEquals(11, graph.getDistance(0, 4));
+		assertArrayEquals(new int[]{0, 2, 1, 3, 4}, graph.getPath(0, 4));
+		assertArrayEquals(new int[]{3}, graph.getPath(3, 3));
+		assertEquals(-1, graph.getDistance(0, 5));
+		assertNull(graph.getPath(0, 5));
+		assertFalse(graph.pathExists(5, 0));
+		assertEquals(-1, graph.getDistance(0, 100));
+
+		graph.setConnectionWeight(0, 1, 0);
+		assertEquals(8, graph.getDistance(0, 4));
+	}
+
+	@Test
+	@DisplayName("Testar att adaptern ger samma avstånd som ListGraph.")
+	void adapterMatchesListGraph() {
+		ListGraph<String> source = new ListGraph<>();
+		for (String node : new String[]{"A", "B", "C", "D", "X"}) {
+			source.add(node);
+		}
+		source.connect("A", "B", "Train", 4);
+		source.connect("A", "C", "Train", 1);
+		source.connect("C", "B", "Boat", 2);
+		source.connect("B", "D", "Airplane", 5);
+
+		var adapter = new IntGraphAdapter<>(source);
+		for (String from : source.getNodes()) {
+			for (String to : source.getNodes()) {
+				assertEquals(source.getDistance(from, to), adapter.getDistance(from, to), "Fel avstånd mellan " + from + " och " + to);
+			}
+		}
+		assertEquals(List.of("A", "C", "B", "D"), adapter.getPath("A", "D"));
+		assertNull(adapter.getPath("A", "X"));
+		assertEquals(-1, adapter.getDistance("A", "ZZZZ"));
+
+		adapter.connect("X", adapter.node(adapter.add("Y")), 2);
+		adapter.connect("D", "Y", 1);
+		assertEquals(11, adapter.getDistance("A", "X"));
+		assertEquals(adapter.id("X"), adapter.getGraph().target(adapter.id("Y"), 0));
+	}
+
+	@Test
+	@DisplayName("Testar att adaptern bara kopierar den billigaste av parallella förbindelser.")
+	void adapterCopiesCheapestParallelEdge() {
+		ListGraph<String> source = new ListGraph<>();
+		source.add("A");
+		source.add("B");
+		source.connect("A", "B", "Train", 4);
+		source.connect("A", "B", "Plane", 1);
+		source.connect("B", "A", "Bus", 7);
+
+		var adapter = new IntGraphAdapter<>(source);
+		assertEquals(1, adapter.getGraph().degree(adapter.id("A")));
+		assertEquals(1, adapter.getDistance("A", "B"));
+		assertEquals(1, adapter.getDistance("B", "A"));
+	}
+}
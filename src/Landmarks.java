@@ -0,0 +1,309 @@
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * The ALT heuristic: lower bounds from precomputed distances to and from a few landmark nodes,
+ * using the triangle inequality. For a landmark L, both d(L, t) - d(L, v) and d(v, L) - d(t, L)
+ * are at most d(v, t), and the largest such bound over all landmarks is the estimate.
+ * <p>
+ * Unlike {@link EuclideanHeuristic} it works for any node type and follows the real weights,
+ * so it also guides the search well over edges whose cost has little to do with map distance.
+ * Use it with {@link AStarSearch}, for example through {@link ListGraph#setPathSearch}.
+ * <p>
+ * The distances are a snapshot. After weights have been lowered or edges added the estimates
+ * can be too high until {@link #rebuild()} or {@link #rebuildAsync(Executor)} has finished;
+ * a rebuild replaces the table atomically, so searches running meanwhile keep a consistent one.
+ */
+public class Landmarks<T> implements Heuristic<T> {
+    private static final int UNREACHABLE = Integer.MAX_VALUE;
+
+    public enum Selection {
+        // Each new landmark is the node farthest from the landmarks chosen so far.
+        FARTHEST,
+        // Goldberg and Werneck's "avoid": a new landmark is placed in the part of a shortest
+        // path tree where the current landmarks give the worst bounds.
+        AVOID
+    }
+
+    private final Graph<T> graph;
+    private final int count;
+    private final Selection selection;
+    private volatile Table<T> table;
+
+    public Landmarks(Graph<T> graph, int count, Selection selection) {
+        if (count < 1) {
+            throw new IllegalArgumentException("At least one landmark is needed");
+        }
+        this.graph = graph;
+        this.count = count;
+        this.selection = selection;
+        rebuild();
+    }
+
+    public void rebuild() {
+        table = new Table<>(graph, count, selection);
+    }
+
+    public CompletableFuture<Void> rebuildAsync(Executor executor) {
+        return CompletableFuture.runAsync(this::rebuild, executor);
+    }
+
+    public List<T> getLandmarks() {
+        Table<T> current = table;
+        List<T> landmarks = new ArrayList<>();
+        for (int landmark : current.landmarks) {
+            landmarks.add(current.node(landmark));
+        }
+        return landmarks;
+    }
+
+    @Override
+    public int estimate(T node, T target) {
+        Table<T> current = table;
+        Integer v = current.ids.get(node);
+        Integer t = current.ids.get(target);
+        if (v == null || t == null) {
+            return 0;
+        }
+        int best = 0;
+        for (int i = 0; i < current.landmarks.length; i++) {
+            int[] from = current.fromLandmark[i];
+            int[] to = current.toLandmark[i];
+            if (from[t] != UNREACHABLE && from[v] != UNREACHABLE) {
+                best = Math.max(best, from[t] - from[v]);
+            }
+            if (to[v] != UNREACHABLE && to[t] != UNREACHABLE) {
+                best = Math.max(best, to[v] - to[t]);
+            }
+        }
+        return best;
+    }
+
+    // An immutable set of landmarks and their distances, built from one snapshot of the graph.
+    private static class Table<T> {
+        private final Object[] nodes;
+        private final Map<T, Integer> ids;
+        private final int[] landmarks;
+        private final int[][] fromLandmark;
+        private final int[][] toLandmark;
+
+        // Forward and reverse adjacency of the snapshot in compressed sparse row form.
+        private final int[] offsets;
+        private final int[] targets;
+        private final int[] weights;
+        private final int[] reverseOffsets;
+        private final int[] reverseTargets;
+        private final int[] reverseWeights;
+
+        private Table(Graph<T> graph, int count, Selection selection) {
+            int n = graph.getNodes().size();
+            nodes = new Object[n];
+            ids = new HashMap<>(n * 2);
+            int next = 0;
+            for (T node : graph.getNodes()) {
+                ids.put(node, next);
+                nodes[next++] = node;
+            }
+
+            offsets = new int[n + 1];
+            reverseOffsets = new int[n + 1];
+            for (int u = 0; u < n; u++) {
+                for (Edge<T> edge : graph.getEdgesFrom(node(u))) {
+                    offsets[u + 1]++;
+                    reverseOffsets[ids.get(edge.getDestination()) + 1]++;
+                }
+            }
+            for (int u = 0; u < n; u++) {
+                offsets[u + 1] += offsets[u];
+                reverseOffsets[u + 1] += reverseOffsets[u];
+            }
+            targets = new int[offsets[n]];
+            weights = new int[offsets[n]];
+            reverseTargets = new int[offsets[n]];
+            reverseWeights = new int[offsets[n]];
+            int[] fill = Arrays.copyOf(offsets, n);
+            int[] reverseFill = Arrays.copyOf(reverseOffsets, n);
+            for (int u = 0; u < n; u++) {
+                for (Edge<T> edge : graph.getEdgesFrom(node(u))) {
+                    int v = ids.get(edge.getDestination());
+                    targets[fill[u]] = v;
+                    weights[fill[u]++] = edge.getWeight();
+                    reverseTargets[reverseFill[v]] = u;
+                    reverseWeights[reverseFill[v]++] = edge.getWeight();
+                }
+            }
+
+            int k = Math.min(count, n);
+            landmarks = new int[k];
+            fromLandmark = new int[k][];
+            toLandmark = new int[k][];
+            Random random = new Random(n);
+            for (int i = 0; i < k; i++) {
+                int landmark = selection == Selection.AVOID
+                        ? avoid(i, random.nextInt(n))
+                        : farthest(i, random.nextInt(n));
+                landmarks[i] = landmark;
+                fromLandmark[i] = dijkstra(landmark, offsets, targets, weights, null);
+                toLandmark[i] = dijkstra(landmark, reverseOffsets, reverseTargets, reverseWeights, null);
+            }
+        }
+
+        @SuppressWarnings("unchecked")
+        private T node(int id) {
+            return (T) nodes[id];
+        }
+
+        // The node with the largest distance to its closest landmark. Nodes no landmark can
+        // reach count as farthest, so every component gets a landmark when there are enough.
+        private int farthest(int chosen, int start) {
+            if (chosen == 0) {
+                int[] dist = dijkstra(start, offsets, targets, weights, null);
+                return argMax(dist, start);
+            }
+            int best = -1;
+            long bestDistance = -1;
+            for (int v = 0; v < nodes.length; v++) {
+                long closest = Long.MAX_VALUE;
+                for (int i = 0; i < chosen; i++) {
+                    long d = fromLandmark[i][v] == UNREACHABLE ? Long.MAX_VALUE - 1 : fromLandmark[i][v];
+                    closest = Math.min(closest, d);
+                }
+                if (closest > bestDistance) {
+                    bestDistance = closest;
+                    best = v;
+                }
+            }
+            return best;
+        }
+
+        private static int argMax(int[] dist, int fallback) {
+            int best = fallback;
+            for (int v = 0; v < dist.length; v++) {
+                if (dist[v] != UNREACHABLE && dist[v] > dist[best]) {
+                    best = v;
+                }
+            }
+            return best;
+        }
+
+        private int avoid(int chosen, int root) {
+            int n = nodes.length;
+            int[] parent = new int[n];
+            int[] dist = dijkstra(root, offsets, targets, weights, parent);
+
+            // Weight: how much the current bound underestimates the distance from the root
+            long[] size = new long[n];
+            boolean[] covered = new boolean[n];
+            for (int i = 0; i < chosen; i++) {
+                covered[landmarks[i]] = true;
+            }
+            Integer[] byDistance = new Integer[n];
+            for (int v = 0; v < n; v++) {
+                byDistance[v] = v;
+            }
+            Arrays.sort(byDistance, Comparator.comparingInt(v -> dist[v]));
+            for (int i = n - 1; i >= 0; i--) {
+                int v = byDistance[i];
+                if (dist[v] == UNREACHABLE) {
+                    continue;
+                }
+                if (!covered[v]) {
+                    size[v] += dist[v] - bound(chosen, root, v);
+                }
+                if (parent[v] >= 0) {
+                    covered[parent[v]] |= covered[v];
+                    size[parent[v]] += size[v];
+                }
+            }
+            for (int v = 0; v < n; v++) {
+                if (covered[v]) {
+                    size[v] = 0;
+                }
+            }
+
+            int best = root;
+            for (int v = 0; v < n; v++) {
+                if (size[v] > size[best]) {
+                    best = v;
+                }
+            }
+            // Walk down the tree towards the largest subtree until a leaf is reached
+            int[] childOffsets = new int[n + 1];
+            for (int v = 0; v < n; v++) {
+                if (parent[v] >= 0) {
+                    childOffsets[parent[v] + 1]++;
+                }
+            }
+            for (int v = 0; v < n; v++) {
+                childOffsets[v + 1] += childOffsets[v];
+            }
+            int[] children = new int[childOffsets[n]];
+            int[] childFill = Arrays.copyOf(childOffsets, n);
+            for (int v = 0; v < n; v++) {
+                if (parent[v] >= 0) {
+                    children[childFill[parent[v]]++] = v;
+                }
+            }
+            while (childOffsets[best] < childOffsets[best + 1]) {
+                int next = children[childOffsets[best]];
+                for (int c = childOffsets[best]; c < childOffsets[best + 1]; c++) {
+                    if (size[children[c]] > size[next]) {
+                        next = children[c];
+                    }
+                }
+                best = next;
+            }
+            if (chosen > 0 && covered[best]) {
+                // Every subtree already has a landmark; fall back to the farthest node
+                return farthest(chosen, root);
+            }
+            return best;
+        }
+
+        private int bound(int chosen, int from, int to) {
+            int best = 0;
+            for (int i = 0; i < chosen; i++) {
+                int[] fromL = fromLandmark[i];
+                int[] toL = toLandmark[i];
+                if (fromL[to] != UNREACHABLE && fromL[from] != UNREACHABLE) {
+                    best = Math.max(best, fromL[to] - fromL[from]);
+                }
+                if (toL[from] != UNREACHABLE && toL[to] != UNREACHABLE) {
+                    best = Math.max(best, toL[from] - toL[to]);
+                }
+            }
+            return best;
+        }
+
+        private int[] dijkstra(int source, int[] offsets, int[] targets, int[] weights, int[] parent) {
+            int[] dist = new int[nodes.length];
+            Arrays.fill(dist, UNREACHABLE);
+            if (parent != null) {
+                Arrays.fill(parent, -1);
+            }
+            LongMinHeap heap = new LongMinHeap();
+            dist[source] = 0;
+            heap.add(LongMinHeap.pack(0, source));
+            while (!heap.isEmpty()) {
+                long entry = heap.poll();
+                int u = LongMinHeap.node(entry);
+                int d = LongMinHeap.distance(entry);
+                if (d > dist[u]) {
+                    continue;
+                }
+                for (int e = offsets[u]; e < offsets[u + 1]; e++) {
+                    int v = targets[e];
+                    if (d + weights[e] < dist[v]) {
+                        dist[v] = d + weights[e];
+                        if (parent != null) {
+                            parent[v] = u;
+                        }
+                        heap.add(LongMinHeap.pack(dist[v], v));
+                    }
+                }
+            }
+            return dist;
+        }
+    }
+}
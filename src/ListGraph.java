@@ -1,14 +1,49 @@
 import java.io.Serializable;
 import java.util.*;
+import java.util.function.Consumer;
 
 public class ListGraph <T> implements Graph<T>, Serializable {
-    private final Map<T, Set<Edge<T>>> locations = new HashMap<>();
+    // Number of pathExists calls answered by BFS before a stale component index is rebuilt.
+    private static final int STALE_QUERIES_BEFORE_REBUILD = 4;
+
+    // The edges of each node, keyed by destination; see Adjacency for how small nodes are stored.
+    private final Map<T, Adjacency<T>> locations = new HashMap<>();
+    // Union-find over the connected components. Only valid while componentsStale is false.
+    private final Map<T, T> componentParent = new HashMap<>();
+    private boolean componentsStale = false;
+    private int staleQueries = 0;
+    // Dense ids for the searches, which keep their state in pooled arrays. Ids of removed nodes are reused.
+    private final Map<T, Integer> ids = new HashMap<>();
+    private final List<T> nodesById = new ArrayList<>();
+    private final Deque<Integer> freeIds = new ArrayDeque<>();
+    // Largest weight ever given through connect or setConnectionWeight; it picks the priority queue
+    // for Dijkstra. Edges made heavier with Edge.setWeight are still handled, only more slowly.
+    private int maxWeight = 0;
+    // Algorithm used by getPath and getDistance; null means the built-in Dijkstra.
+    private transient PathSearch<T> pathSearch;
 
     @Override
     public void add(T node) {
-        locations.putIfAbsent(node, new HashSet<>());
+        if (locations.putIfAbsent(node, new Adjacency<>()) == null){
+            componentParent.put(node, node);
+            Integer id = freeIds.poll();
+            if (id == null){
+                id = nodesById.size();
+                nodesById.add(node);
+            } else {
+                nodesById.set(id, node);
+            }
+            ids.put(node, id);
+        }
+    }
+
+    private void releaseId(T node){
+        int id = ids.remove(node);
+        nodesById.set(id, null);
+        freeIds.push(id);
     }
 
+    // Connections are keyed by name, so two nodes can have several, such as a train and a flight.
     @Override
     public void connect(T node1, T node2, String name, int weight) {
         if (!locations.containsKey(node1) || !locations.containsKey(node2)){
@@ -21,18 +56,25 @@ public class ListGraph <T> implements Graph<T>, Serializable {
         Edge<T> edge1 = new Edge(node2, name, weight);
         Edge<T> edge2 = new Edge(node1, name, weight);
 
-        Set<Edge<T>> fromDestinations = locations.get(node1);
-        Set<Edge<T>> toDestinations = locations.get(node2);
+        Adjacency<T> fromDestinations = locations.get(node1);
+        Adjacency<T> toDestinations = locations.get(node2);
 
-        if (fromDestinations.contains(edge1) || toDestinations.contains(edge2)){
+        if (fromDestinations.get(node2, name) != null || toDestinations.get(node1, name) != null){
             throw new IllegalStateException("The edge already exists");
         }
 
-        fromDestinations.add(edge1);
-        toDestinations.add(edge2);
+        fromDestinations.put(edge1);
+        if (!node1.equals(node2)){
+            toDestinations.put(edge2);
+        }
+        maxWeight = Math.max(maxWeight, weight);
 
+        if (!componentsStale){
+            componentParent.put(findComponent(node1), findComponent(node2));
+        }
     }
 
+    // Changes the cheapest connection between the nodes, the one getEdgeBetween returns.
     @Override
     public void setConnectionWeight(T node1, T node2, int weight) {
         if (!locations.containsKey(node1) || !locations.containsKey(node2)){
@@ -41,9 +83,23 @@ public class ListGraph <T> implements Graph<T>, Serializable {
         if (weight < 0){
             throw new IllegalArgumentException("The weight is negative");
         }
+        Edge<T> cheapest = getEdgeBetween(node1, node2);
+        if (cheapest == null){
+            throw new NullPointerException();
+        }
+        setConnectionWeight(node1, node2, cheapest.getName(), weight);
+    }
 
-        Edge<T> edge1 = getEdgeBetween(node1, node2);
-        Edge<T> edge2 = getEdgeBetween(node2, node1);
+    public void setConnectionWeight(T node1, T node2, String name, int weight) {
+        if (!locations.containsKey(node1) || !locations.containsKey(node2)){
+            throw new NoSuchElementException("The node is not found");
+        }
+        if (weight < 0){
+            throw new IllegalArgumentException("The weight is negative");
+        }
+
+        Edge<T> edge1 = locations.get(node1).get(node2, name);
+        Edge<T> edge2 = locations.get(node2).get(node1, name);
 
         if(edge1 == null || edge2 == null){
             throw new NullPointerException();
@@ -51,6 +107,7 @@ public class ListGraph <T> implements Graph<T>, Serializable {
 
         edge1.setWeight(weight);
         edge2.setWeight(weight);
+        maxWeight = Math.max(maxWeight, weight);
     }
 
     @Override
@@ -63,40 +120,75 @@ public class ListGraph <T> implements Graph<T>, Serializable {
         if (!locations.containsKey(node)){
             throw new NoSuchElementException("The node is not found");
         }
-        Set<Edge<T>> edgeList = locations.get(node);
-        return Set.copyOf(edgeList);
+        return Set.copyOf(locations.get(node));
     }
 
     @Override
-    public Edge getEdgeBetween(T node1, T node2) {
+    public Collection<Edge<T>> getEdgesView(T node) {
+        return Collections.unmodifiableCollection(adjacency(node));
+    }
+
+    @Override
+    public void forEachEdge(T node, Consumer<? super Edge<T>> action) {
+        // Adjacency's iteration is fail-fast, which gives the ConcurrentModificationException
+        adjacency(node).forEach(action);
+    }
+
+    private Adjacency<T> adjacency(T node) {
+        Adjacency<T> edges = locations.get(node);
+        if (edges == null){
+            throw new NoSuchElementException("The node is not found");
+        }
+        return edges;
+    }
+
+    // The cheapest of the connections between the nodes, or null if there is none.
+    @Override
+    public Edge<T> getEdgeBetween(T node1, T node2) {
         if (!locations.containsKey(node1) || !locations.containsKey(node2)){
             throw new NoSuchElementException("The node is not found");
         }
+        return locations.get(node1).get(node2);
+    }
 
-        Set<Edge<T>> edges = locations.get(node1);
-        for(Edge e: edges){
-            if(e.getDestination().equals(node2)){
-                return e;
-            }
+    @Override
+    public Collection<Edge<T>> getEdgesBetween(T node1, T node2) {
+        if (!locations.containsKey(node1) || !locations.containsKey(node2)){
+            throw new NoSuchElementException("The node is not found");
         }
-        return null;
+        return locations.get(node1).edgesTo(node2);
     }
 
+    // Removes every connection between the nodes.
     @Override
     public void disconnect(T node1, T node2) {
         if (!locations.containsKey(node1) || !locations.containsKey(node2)){
             throw new NoSuchElementException("The node is not found");
         }
 
-        Edge<T> edgeFromTo = getEdgeBetween(node2, node1);
-        Edge<T> edgeToFrom = getEdgeBetween(node1, node2);
+        if (!locations.get(node1).containsDestination(node2) || !locations.get(node2).containsDestination(node1)) {
+            throw new IllegalStateException();
+        }
 
-        if (edgeToFrom == null || edgeFromTo == null) {
+        locations.get(node1).removeDestination(node2);
+        locations.get(node2).removeDestination(node1);
+        markComponentsStale();
+    }
+
+    // Removes the connection with the given name and leaves any other connections between the nodes.
+    public void disconnect(T node1, T node2, String name) {
+        if (!locations.containsKey(node1) || !locations.containsKey(node2)){
+            throw new NoSuchElementException("The node is not found");
+        }
+        if (locations.get(node1).get(node2, name) == null) {
             throw new IllegalStateException();
         }
 
-        locations.get(node1).remove(edgeToFrom);
-        locations.get(node2).remove(edgeFromTo);
+        locations.get(node1).removeEdge(node2, name);
+        locations.get(node2).removeEdge(node1, name);
+        if (!locations.get(node1).containsDestination(node2)){
+            markComponentsStale();
+        }
     }
 
     @Override
@@ -104,106 +196,209 @@ public class ListGraph <T> implements Graph<T>, Serializable {
         if (!locations.containsKey(node)){
             throw new NoSuchElementException("The node is not found");
         }
-        locations.remove(node);
-        for (Set<Edge<T>> edges : locations.values()) {
-            edges.removeIf(edge -> edge.getDestination().equals(node));
+        // Every edge is mirrored, so only the node's own neighbours point back at it; a loop
+        // points back at the node itself, which is already gone
+        for (Edge<T> edge : locations.remove(node).cheapest()) {
+            if (!edge.getDestination().equals(node)) {
+                locations.get(edge.getDestination()).removeDestination(node);
+            }
         }
+        releaseId(node);
+        markComponentsStale();
+    }
+
+    // Removes several nodes in one sweep over their edges. Nothing is removed if a node is missing.
+    public void removeAll(Collection<T> nodes) {
+        for (T node : nodes) {
+            if (!locations.containsKey(node)){
+                throw new NoSuchElementException("The node is not found");
+            }
+        }
+        for (T node : nodes) {
+            Adjacency<T> edges = locations.remove(node);
+            if (edges == null){
+                continue;
+            }
+            releaseId(node);
+            for (Edge<T> edge : edges.cheapest()) {
+                // A neighbour that was removed earlier in the sweep has no edges left to clean
+                Adjacency<T> back = locations.get(edge.getDestination());
+                if (back != null){
+                    back.removeDestination(node);
+                }
+            }
+        }
+        markComponentsStale();
     }
 
     @Override
     public boolean pathExists(T from, T to) {
-        Set<T> visited = new HashSet<>();
-
-        return recursiveVisitAll(from, to, visited);
+        if (!locations.containsKey(from) || !locations.containsKey(to)){
+            return false;
+        }
+        if (componentsStale){
+            if (++staleQueries <= STALE_QUERIES_BEFORE_REBUILD){
+                return breadthFirstReaches(from, to);
+            }
+            rebuildComponents();
+        }
+        return findComponent(from).equals(findComponent(to));
     }
 
-    private boolean recursiveVisitAll(T node1, T node2, Set<T> visited){
-        if (!locations.containsKey(node1) || !locations.containsKey(node2)){
+    private boolean breadthFirstReaches(T from, T to){
+        int target = ids.get(to);
+        SearchWorkspace workspace = SearchWorkspace.acquire(nodesById.size());
+        try {
+            int[] queue = workspace.queue;
+            int head = 0;
+            int tail = 0;
+            int source = ids.get(from);
+            workspace.reach(source, 0, source, null);
+            queue[tail++] = source;
+            while (head < tail){
+                int node = queue[head++];
+                if (node == target){
+                    return true;
+                }
+                for (Edge<T> e : locations.get(nodesById.get(node)).cheapest()){
+                    int v = ids.get(e.getDestination());
+                    if (!workspace.reached(v)){
+                        workspace.reach(v, 0, node, null);
+                        queue[tail++] = v;
+                    }
+                }
+            }
             return false;
+        } finally {
+            workspace.release();
         }
+    }
 
-        visited.add(node1);
-        if(node1.equals(node2)){
-            return true;
+    // Union-find lookup with path halving.
+    private T findComponent(T node){
+        T parent = componentParent.get(node);
+        while (!parent.equals(node)){
+            T grandParent = componentParent.get(parent);
+            componentParent.put(node, grandParent);
+            node = grandParent;
+            parent = componentParent.get(node);
         }
-        //if(!locations.get(node1).isEmpty() && !locations.get(node2).isEmpty()) {
-            for (Edge<T> e : locations.get(node1)) {
-                if (!visited.contains(e.getDestination())) {
-                    if (recursiveVisitAll(e.getDestination(), node2, visited)) {
-                        return true;
+        return node;
+    }
+
+    // Union-find cannot split components, so disconnect and remove only mark the index as stale.
+    private void markComponentsStale(){
+        componentsStale = true;
+        staleQueries = 0;
+    }
+
+    private void rebuildComponents(){
+        componentParent.clear();
+        Deque<T> queue = new ArrayDeque<>();
+        for (T root : locations.keySet()){
+            if (componentParent.containsKey(root)){
+                continue;
+            }
+            componentParent.put(root, root);
+            queue.add(root);
+            while (!queue.isEmpty()){
+                T node = queue.poll();
+                for (Edge<T> e : locations.get(node).cheapest()){
+                    if (componentParent.putIfAbsent(e.getDestination(), root) == null){
+                        queue.add(e.getDestination());
                     }
                 }
             }
-        //}
-        return false;
+        }
+        componentsStale = false;
+    }
+
+    public void setPathSearch(PathSearch<T> pathSearch) {
+        this.pathSearch = pathSearch;
     }
-    //hej
 
     @Override
     public List<Edge<T>> getPath(T from, T to) {
-        if (!pathExists(from, to)){
+        if (pathSearch != null){
+            return pathSearch.getPath(this, from, to);
+        }
+        if (!locations.containsKey(from) || !locations.containsKey(to)){
             return null;
         }
-        Map<T, Integer> dist = new HashMap<>();
-        Map<T, T> prev = new HashMap<>();
-        Set<T> q = new HashSet<>();
-
-        for(T node : locations.keySet()){
-            dist.put(node, Integer.MAX_VALUE);
-            prev.put(node, null);
-            q.add(node);
+        int source = ids.get(from);
+        int target = ids.get(to);
+        SearchWorkspace workspace = SearchWorkspace.acquire(nodesById.size());
+        try {
+            if (search(source, target, workspace) < 0){
+                return null;
+            }
+            return returnPath(source, target, workspace);
+        } finally {
+            workspace.release();
         }
+    }
 
-        dist.put(from, 0);
+    @Override
+    public int getDistance(T from, T to) {
+        if (pathSearch != null){
+            return pathSearch.getDistance(this, from, to);
+        }
+        if (!locations.containsKey(from) || !locations.containsKey(to)){
+            return -1;
+        }
+        SearchWorkspace workspace = SearchWorkspace.acquire(nodesById.size());
+        try {
+            return search(ids.get(from), ids.get(to), workspace);
+        } finally {
+            workspace.release();
+        }
+    }
 
-        while(!q.isEmpty()){
-            T temp = null;
-            int minDist = Integer.MAX_VALUE;
-            for( T node : q){
-                int i = dist.get(node);
-                if(i < minDist){
-                    temp = node;
-                    minDist = i;
-                }
+    // Dijkstra from source that stops once target is settled. Returns -1 if target cannot be reached.
+    private int search(int source, int target, SearchWorkspace workspace) {
+        LongPriorityQueue queue = workspace.priorityQueue(maxWeight);
+        workspace.reach(source, 0, source, null);
+        queue.add(LongMinHeap.pack(0, source));
+
+        while(!queue.isEmpty()){
+            long entry = queue.poll();
+            int temp = LongMinHeap.node(entry);
+            int distance = LongMinHeap.distance(entry);
+            // Noder kan ligga kvar i kön med en gammal distans, de hoppas över
+            if(distance > workspace.dist[temp]){
+                continue;
             }
-            if(temp.equals(to)){
-                break;
+            if(temp == target){
+                return distance;
             }
 
-            q.remove(temp);
-
-            for(Edge<T> tempEdge : locations.get(temp)){
-                if(q.contains(tempEdge.getDestination())){
-                    int altDistance = dist.get(temp) + tempEdge.getWeight();
-                    if(altDistance < dist.get(tempEdge.getDestination())){
-                        dist.put(tempEdge.getDestination(), altDistance); // Ändrar distans till den lägre distansen
-                        prev.put(tempEdge.getDestination(), temp); // Sätter temp till närmaste granne.
-                    }
+            // Only the cheapest of several parallel edges can be on a shortest path
+            for(Edge<T> tempEdge : locations.get(nodesById.get(temp)).cheapest()){
+                int destination = ids.get(tempEdge.getDestination());
+                int altDistance = distance + tempEdge.getWeight();
+                if(!workspace.reached(destination) || altDistance < workspace.dist[destination]){
+                    // Ändrar distans till den lägre distansen och sparar bågen som ledde hit
+                    workspace.reach(destination, altDistance, temp, tempEdge);
+                    queue.add(LongMinHeap.pack(altDistance, destination));
                 }
             }
         }
-        return returnPath(to, prev);
+        return -1;
     }
 
-    private List<Edge<T>> returnPath(T to, Map<T, T> prev) {
-        LinkedList<Edge<T>> path = new LinkedList<>();
-        T temp = to;
-        if(prev.get(temp) != null || temp.equals(to)){
-            while( temp != null){
-                T next = prev.get(temp);
-                if(next != null){
-                    Edge<T> edge = getEdgeBetween(next, temp);
-                    path.addFirst(edge);
-                }
-                temp = next;
-            }
+    @SuppressWarnings("unchecked")
+    private List<Edge<T>> returnPath(int source, int target, SearchWorkspace workspace) {
+        List<Edge<T>> path = new ArrayList<>();
+        for(int temp = target; temp != source; temp = workspace.parent[temp]){
+            path.add((Edge<T>) workspace.parentEdge[temp]);
         }
+        Collections.reverse(path);
         return path;
     }
 
     public String toString(){
         StringBuilder builder = new StringBuilder();
-        for(Map.Entry<T, Set<Edge<T>>> l: locations.entrySet()){
+        for(Map.Entry<T, Adjacency<T>> l: locations.entrySet()){
             builder.append(l.getKey());
             for(Edge<T> edge : l.getValue()){
                 builder.append(edge.toString());
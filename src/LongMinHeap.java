@@ -0,0 +1,83 @@
+import java.util.Arrays;
+
+/**
+ * A binary min-heap of primitive longs, used by the int-indexed search engines.
+ * Entries are packed with {@link #pack(int, int)} so that the distance is compared first;
+ * stale entries are left in the heap and skipped by the caller (lazy deletion).
+ */
+class LongMinHeap implements LongPriorityQueue {
+    private long[] heap;
+    private int size;
+
+    LongMinHeap() {
+        this(16);
+    }
+
+    LongMinHeap(int capacity) {
+        heap = new long[Math.max(capacity, 2)];
+    }
+
+    static long pack(int distance, int node) {
+        return ((long) distance << 32) | (node & 0xFFFFFFFFL);
+    }
+
+    static int distance(long entry) {
+        return (int) (entry >>> 32);
+    }
+
+    static int node(long entry) {
+        return (int) entry;
+    }
+
+    @Override
+    public void add(long entry) {
+        if (size == heap.length) {
+            heap = Arrays.copyOf(heap, size * 2);
+        }
+        int i = size++;
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (heap[parent] <= entry) {
+                break;
+            }
+            heap[i] = heap[parent];
+            i = parent;
+        }
+        heap[i] = entry;
+    }
+
+    long peek() {
+        return heap[0];
+    }
+
+    @Override
+    public long poll() {
+        long top = heap[0];
+        long last = heap[--size];
+        int i = 0;
+        int half = size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            if (child + 1 < size && heap[child + 1] < heap[child]) {
+                child++;
+            }
+            if (last <= heap[child]) {
+                break;
+            }
+            heap[i] = heap[child];
+            i = child;
+        }
+        heap[i] = last;
+        return top;
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+    }
+}
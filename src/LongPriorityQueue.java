@@ -0,0 +1,14 @@
+/**
+ * A min-priority queue of entries packed with {@link LongMinHeap#pack(int, int)}, as used by the
+ * int-indexed Dijkstra searches. Stale entries stay in the queue and are skipped by the caller.
+ */
+interface LongPriorityQueue {
+
+    void add(long entry);
+
+    long poll();
+
+    boolean isEmpty();
+
+    void clear();
+}
@@ -0,0 +1,3 @@
+// Two values that belong together, such as the start and end of a route.
+public record Pair<A, B>(A first, B second) {
+}
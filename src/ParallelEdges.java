@@ -0,0 +1,89 @@
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Two or more edges from one node to the same destination, with different names, such as a
+ * train and a flight between the same two cities. The cheapest of them is cached for lookups
+ * and searches; the edges report weight changes here, so the cache stays valid even when a
+ * weight is changed directly through {@link Edge#setWeight}.
+ */
+final class ParallelEdges<T> implements Serializable {
+    private final List<Edge<T>> edges = new ArrayList<>(2);
+    private Edge<T> cheapest;
+
+    ParallelEdges(Edge<T> first, Edge<T> second) {
+        cheapest = first;
+        add(first);
+        add(second);
+    }
+
+    void add(Edge<T> edge) {
+        edges.add(edge);
+        edge.setGroup(this);
+        if (edge.getWeight() < cheapest.getWeight()) {
+            cheapest = edge;
+        }
+    }
+
+    // Removes the edge with the given name and returns it, or null if there is none.
+    Edge<T> remove(String name) {
+        for (int i = 0; i < edges.size(); i++) {
+            Edge<T> edge = edges.get(i);
+            if (edge.getName().equals(name)) {
+                edges.remove(i);
+                edge.setGroup(null);
+                if (edge == cheapest) {
+                    findCheapest();
+                }
+                return edge;
+            }
+        }
+        return null;
+    }
+
+    // Detaches all edges, when the whole group is removed or only one edge is left.
+    void dissolve() {
+        for (Edge<T> edge : edges) {
+            edge.setGroup(null);
+        }
+    }
+
+    Edge<T> get(String name) {
+        for (Edge<T> edge : edges) {
+            if (edge.getName().equals(name)) {
+                return edge;
+            }
+        }
+        return null;
+    }
+
+    Edge<T> cheapest() {
+        return cheapest;
+    }
+
+    List<Edge<T>> edges() {
+        return edges;
+    }
+
+    int size() {
+        return edges.size();
+    }
+
+    void weightChanged(Edge<T> edge) {
+        if (edge.getWeight() < cheapest.getWeight()) {
+            cheapest = edge;
+        } else if (edge == cheapest) {
+            findCheapest();
+        }
+    }
+
+    private void findCheapest() {
+        cheapest = edges.get(0);
+        for (Edge<T> edge : edges) {
+            if (edge.getWeight() < cheapest.getWeight()) {
+                cheapest = edge;
+            }
+        }
+    }
+}
@@ -201,7 +201,8 @@ public class PathFinder extends Application {
                 String medium = edgeData[2];
                 int distance = Integer.parseInt(edgeData[3]);
 
-                if(from != null && to != null && !graph.pathExists(from, to)) {
+                // Each connection is saved once from each end, so the second line is skipped
+                if(from != null && to != null && !hasConnectionNamed(from, to, medium)) {
                     graph.connect(from, to, medium, distance); }
             }
             reader.close();
@@ -219,7 +220,7 @@ public class PathFinder extends Application {
                     Location l = (Location) c;
 
                     alreadyDone.put(l, new HashSet<>());
-                    for(Edge<Location> edge: graph.getEdgesFrom(l)){
+                    for(Edge<Location> edge: graph.getEdgesView(l)){
 
                         if(alreadyDone.containsKey(edge.getDestination()) && !alreadyDone.get(edge.getDestination()).contains(l)){
                             /*Line connection = new Line(l.getCenterX(), l.getCenterY(), edge.getDestination().getCenterX(), edge.getDestination().getCenterY());
@@ -372,14 +373,6 @@ public class PathFinder extends Application {
                 errorAlert.setHeaderText(null);
                 errorAlert.showAndWait();
             }
-            //else if (graph.pathExists(clickedLocations.get(0), clickedLocations.get(1))){
-            else if (graph.getEdgeBetween(clickedLocations.get(0), clickedLocations.get(1)) != null){
-                Alert errorAlert = new Alert(Alert.AlertType.ERROR);
-                errorAlert.setTitle("Error!");
-                errorAlert.setContentText("Path already exists!");
-                errorAlert.setHeaderText(null);
-                errorAlert.showAndWait();
-            }
             else {
                 GridPane windowPane = new GridPane();
                 Label nameLabel = new Label("Name: ");
@@ -408,7 +401,15 @@ public class PathFinder extends Application {
                     String name = nameTextField.getText().trim();
                     try{
                         int time = Integer.parseInt(timeTextField.getText().trim());
-                        if (!name.isEmpty()) {
+                        // Two places may have several connections, but not two with the same name
+                        if (hasConnectionNamed(clickedLocations.get(0), clickedLocations.get(1), name)) {
+                            Alert errorAlert = new Alert(Alert.AlertType.ERROR);
+                            errorAlert.setTitle("Error!");
+                            errorAlert.setContentText("Path already exists!");
+                            errorAlert.setHeaderText(null);
+                            errorAlert.showAndWait();
+                        }
+                        else if (!name.isEmpty()) {
                             graph.connect(clickedLocations.get(0), clickedLocations.get(1), name, time);
                             pane.getChildren().add(createConnectionLine(clickedLocations.get(0), clickedLocations.get(1))); // LÄGGER TILL CONNECTION MELLAN LOCATIONS
 
@@ -441,6 +442,15 @@ public class PathFinder extends Application {
         }
     }
 
+    private boolean hasConnectionNamed(Location from, Location to, String name){
+        for (Edge<Location> edge : graph.getEdgesBetween(from, to)) {
+            if (edge.getName().equals(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private void triggerSelectionAlert(){
         Alert errorAlert = new Alert(Alert.AlertType.ERROR);
         errorAlert.setTitle("Error!");
@@ -501,8 +511,10 @@ public class PathFinder extends Application {
                     edge.setWeight(newTime);
                     Location from = clickedLocations.get(0);
                     Location to = clickedLocations.get(1);
-                    if(graph.getEdgeBetween(to, from) != null){
-                        graph.getEdgeBetween(to, from).setWeight(newTime);
+                    for (Edge<Location> back : graph.getEdgesBetween(to, from)) {
+                        if (back.getName().equals(name)) {
+                            back.setWeight(newTime);
+                        }
                     }
                 } catch (NumberFormatException e) {
                     e.printStackTrace();
@@ -0,0 +1,13 @@
+import java.util.List;
+
+/**
+ * A point-to-point shortest path algorithm that can be run on any {@link Graph}.
+ * Both methods follow the contract of {@link Graph#getPath} and {@link Graph#getDistance}:
+ * a missing or unreachable node gives {@code null} and {@code -1} respectively.
+ */
+public interface PathSearch<T> {
+
+    List<Edge<T>> getPath(Graph<T> graph, T from, T to);
+
+    int getDistance(Graph<T> graph, T from, T to);
+}
@@ -0,0 +1,120 @@
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.*;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PathSearchTest {
+	private static final int SIZE = 8;
+
+	// Ett rutnät där noden i har koordinaterna (i % SIZE, i / SIZE) och varje båge kostar minst 2.
+	private final ListGraph<Integer> grid = new ListGraph<>();
+
+	static Stream<PathSearch<Integer>> searches() {
+		Heuristic<Integer> manhattan = (node, target) ->
+				2 * (Math.abs(node % SIZE - target % SIZE) + Math.abs(node / SIZE - target / SIZE));
+		return Stream.of(
+				new AStarSearch<>(Heuristic.zero()),
+				new AStarSearch<>(manhattan),
+				new BidirectionalSearch<>()
+		);
+	}
+
+	@BeforeEach
+	void setUp() {
+		Random random = new Random(7);
+		for (int i = 0; i < SIZE * SIZE; i++) {
+			grid.add(i);
+		}
+		for (int i = 0; i < SIZE * SIZE; i++) {
+			if (i % SIZE < SIZE - 1) {
+				grid.connect(i, i + 1, i + " - " + (i + 1), 2 + random.nextInt(9));
+			}
+			if (i / SIZE < SIZE - 1) {
+				grid.connect(i, i + SIZE, i + " - " + (i + SIZE), 2 + random.nextInt(9));
+			}
+		}
+		grid.add(-1);
+	}
+
+	@ParameterizedTest
+	@MethodSource("searches")
+	@DisplayName("Testar att sökningen ger samma avstånd som ListGraph.")
+	void distancesMatchDijkstra(PathSearch<Integer> search) {
+		for (int from = 0; from < SIZE * SIZE; from += 5) {
+			for (int to = 0; to < SIZE * SIZE; to += 3) {
+				int expected = grid.getDistance(from, to);
+				assertEquals(expected, search.getDistance(grid, from, to), "Fel avstånd mellan " + from + " och " + to);
+
+				List<Edge<Integer>> path = search.getPath(grid, from, to);
+				int cost = 0;
+				int current = from;
+				for (Edge<Integer> edge : path) {
+					assertNotNull(grid.getEdgeBetween(current, edge.getDestination()), "Fel: vägen går inte längs bågar i grafen.");
+					current = edge.getDestination();
+					cost += edge.getWeight();
+				}
+				assertEquals(to, current);
+				assertEquals(expected, cost);
+			}
+		}
+	}
+
+	@ParameterizedTest
+	@EnumSource(Landmarks.Selection.class)
+	@DisplayName("Testar A* med landmärken före och efter ändrade vikter.")
+	void landmarksGiveShortestPaths(Landmarks.Selection selection) throws Exception {
+		var landmarks = new Landmarks<>(grid, 4, selection);
+		assertEquals(4, landmarks.getLandmarks().size());
+		grid.setPathSearch(new AStarSearch<>(landmarks));
+		ListGraph<Integer> reference = new ListGraph<>();
+		for (int i = 0; i < SIZE * SIZE; i++) {
+			reference.add(i);
+			for (Edge<Integer> edge : grid.getEdgesFrom(i)) {
+				if (edge.getDestination() < i) {
+					reference.connect(i, edge.getDestination(), edge.getName(), edge.getWeight());
+				}
+			}
+		}
+		for (int from = 0; from < SIZE * SIZE; from += 3) {
+			for (int to = 0; to < SIZE * SIZE; to += 5) {
+				assertTrue(landmarks.estimate(from, to) <= reference.getDistance(from, to), "Fel: uppskattningen är för hög.");
+				assertEquals(reference.getDistance(from, to), grid.getDistance(from, to));
+			}
+		}
+
+		grid.setConnectionWeight(0, 1, 0);
+		reference.setConnectionWeight(0, 1, 0);
+		landmarks.rebuildAsync(Runnable::run).get();
+		for (int to = 0; to < SIZE * SIZE; to++) {
+			assertEquals(reference.getDistance(1, to), grid.getDistance(1, to));
+		}
+	}
+
+	@Test
+	@DisplayName("Testar att ListGraph använder den valda sökningen.")
+	void listGraphUsesSelectedSearch() {
+		int expected = grid.getDistance(0, SIZE * SIZE - 1);
+		List<Edge<Integer>> expectedPath = grid.getPath(0, SIZE * SIZE - 1);
+
+		grid.setPathSearch(new BidirectionalSearch<>());
+		assertEquals(expected, grid.getDistance(0, SIZE * SIZE - 1));
+		assertEquals(expectedPath.size(), grid.getPath(0, SIZE * SIZE - 1).size());
+		assertNull(grid.getPath(0, -1));
+	}
+
+	@ParameterizedTest
+	@MethodSource("searches")
+	@DisplayName("Testar sökning till noder som saknas eller inte går att nå.")
+	void unreachableAndMissingNodes(PathSearch<Integer> search) {
+		assertNull(search.getPath(grid, 0, -1));
+		assertEquals(-1, search.getDistance(grid, 0, -1));
+		assertNull(search.getPath(grid, 0, 1000));
+		assertEquals(-1, search.getDistance(grid, 1000, 0));
+		assertEquals(List.of(), search.getPath(grid, 3, 3));
+	}
+}
@@ -0,0 +1,405 @@
+import java.util.*;
+
+/**
+ * An immutable hash map whose updates return a new map that shares all unchanged parts with the
+ * old one. It is a hash array mapped trie: each level uses five bits of the key's hash to pick
+ * one of up to 32 children, and only the children that exist are stored, in an array indexed
+ * through a bitmap. {@link #put} and {@link #remove} copy the path from the root to one leaf,
+ * at most seven small arrays, and leave the rest of the trie shared.
+ * <p>
+ * Null keys and values are not allowed.
+ */
+final class PersistentMap<K, V> implements Iterable<Map.Entry<K, V>> {
+    private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(null, 0);
+    private static final int BITS = 5;
+    private static final int MASK = (1 << BITS) - 1;
+
+    private final Node root;
+    private final int size;
+
+    private PersistentMap(Node root, int size) {
+        this.root = root;
+        this.size = size;
+    }
+
+    @SuppressWarnings("unchecked")
+    static <K, V> PersistentMap<K, V> empty() {
+        return (PersistentMap<K, V>) EMPTY;
+    }
+
+    int size() {
+        return size;
+    }
+
+    boolean isEmpty() {
+        return size == 0;
+    }
+
+    @SuppressWarnings("unchecked")
+    V get(Object key) {
+        return root == null ? null : (V) root.get(0, key.hashCode(), key);
+    }
+
+    boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    // This map with key mapped to value; this map itself if it already was.
+    PersistentMap<K, V> put(K key, V value) {
+        Objects.requireNonNull(value);
+        boolean[] added = new boolean[1];
+        Node node = root == null ? BitmapNode.EMPTY : root;
+        Node updated = node.put(0, key.hashCode(), key, value, added);
+        if (updated == root) {
+            return this;
+        }
+        return new PersistentMap<>(updated, added[0] ? size + 1 : size);
+    }
+
+    // This map without key; this map itself if key was not in it.
+    PersistentMap<K, V> remove(Object key) {
+        if (root == null) {
+            return this;
+        }
+        Node updated = root.remove(0, key.hashCode(), key);
+        if (updated == root) {
+            return this;
+        }
+        return updated == null ? empty() : new PersistentMap<>(updated, size - 1);
+    }
+
+    @Override
+    public Iterator<Map.Entry<K, V>> iterator() {
+        return new EntryIterator<>(root);
+    }
+
+    Iterable<K> keys() {
+        return () -> new MappedIterator<>(iterator(), true);
+    }
+
+    Iterable<V> values() {
+        return () -> new MappedIterator<>(iterator(), false);
+    }
+
+    // A read-only java.util.Map view, for callers that want one.
+    Map<K, V> asMap() {
+        return new AbstractMap<>() {
+            @Override
+            public V get(Object key) {
+                return PersistentMap.this.get(key);
+            }
+
+            @Override
+            public boolean containsKey(Object key) {
+                return PersistentMap.this.containsKey(key);
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+
+            @Override
+            public Set<Entry<K, V>> entrySet() {
+                return new AbstractSet<>() {
+                    @Override
+                    public Iterator<Entry<K, V>> iterator() {
+                        return PersistentMap.this.iterator();
+                    }
+
+                    @Override
+                    public int size() {
+                        return size;
+                    }
+                };
+            }
+        };
+    }
+
+    private abstract static class Node {
+        abstract Object get(int shift, int hash, Object key);
+
+        // Returns this node if nothing changed; sets added[0] if the key is new.
+        abstract Node put(int shift, int hash, Object key, Object value, boolean[] added);
+
+        // Returns this node if the key was not found, null if the node is now empty.
+        abstract Node remove(int shift, int hash, Object key);
+
+        // The key of the only entry, if the node holds exactly one entry and no children.
+        abstract Object singleKey();
+
+        abstract Object singleValue();
+    }
+
+    // Entries and children in one array: slot 2i holds a key and 2i + 1 its value, or slot 2i
+    // is null and 2i + 1 holds the child node for that part of the hash.
+    private static final class BitmapNode extends Node {
+        private static final BitmapNode EMPTY = new BitmapNode(0, new Object[0]);
+
+        private final int bitmap;
+        private final Object[] array;
+
+        private BitmapNode(int bitmap, Object[] array) {
+            this.bitmap = bitmap;
+            this.array = array;
+        }
+
+        private int index(int bit) {
+            return 2 * Integer.bitCount(bitmap & (bit - 1));
+        }
+
+        @Override
+        Object get(int shift, int hash, Object key) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) {
+                return null;
+            }
+            int i = index(bit);
+            Object k = array[i];
+            if (k == null) {
+                return ((Node) array[i + 1]).get(shift + BITS, hash, key);
+            }
+            return k.equals(key) ? array[i + 1] : null;
+        }
+
+        @Override
+        Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            int i = index(bit);
+            if ((bitmap & bit) == 0) {
+                added[0] = true;
+                Object[] copy = new Object[array.length + 2];
+                System.arraycopy(array, 0, copy, 0, i);
+                copy[i] = key;
+                copy[i + 1] = value;
+                System.arraycopy(array, i, copy, i + 2, array.length - i);
+                return new BitmapNode(bitmap | bit, copy);
+            }
+            Object k = array[i];
+            Object v = array[i + 1];
+            if (k == null) {
+                Node child = ((Node) v).put(shift + BITS, hash, key, value, added);
+                return child == v ? this : with(i, null, child);
+            }
+            if (k.equals(key)) {
+                return v == value ? this : with(i, k, value);
+            }
+            added[0] = true;
+            return with(i, null, pair(shift + BITS, k.hashCode(), k, v, hash, key, value));
+        }
+
+        private BitmapNode with(int i, Object key, Object value) {
+            Object[] copy = array.clone();
+            copy[i] = key;
+            copy[i + 1] = value;
+            return new BitmapNode(bitmap, copy);
+        }
+
+        private static Node pair(int shift, int hash1, Object key1, Object value1,
+                                 int hash2, Object key2, Object value2) {
+            if (hash1 == hash2) {
+                return new CollisionNode(hash1, new Object[]{key1, value1, key2, value2});
+            }
+            boolean[] ignored = new boolean[1];
+            return EMPTY.put(shift, hash1, key1, value1, ignored).put(shift, hash2, key2, value2, ignored);
+        }
+
+        @Override
+        Node remove(int shift, int hash, Object key) {
+            int bit = 1 << ((hash >>> shift) & MASK);
+            if ((bitmap & bit) == 0) {
+                return this;
+            }
+            int i = index(bit);
+            Object k = array[i];
+            if (k == null) {
+                Node child = (Node) array[i + 1];
+                Node updated = child.remove(shift + BITS, hash, key);
+                if (updated == child) {
+                    return this;
+                }
+                if (updated == null) {
+                    return without(bit, i);
+                }
+                // Pull a lone entry up so the trie does not keep chains of single-entry nodes
+                Object single = updated.singleKey();
+                return single != null ? with(i, single, updated.singleValue()) : with(i, null, updated);
+            }
+            return k.equals(key) ? without(bit, i) : this;
+        }
+
+        private BitmapNode without(int bit, int i) {
+            if (array.length == 2) {
+                return null;
+            }
+            Object[] copy = new Object[array.length - 2];
+            System.arraycopy(array, 0, copy, 0, i);
+            System.arraycopy(array, i + 2, copy, i, array.length - i - 2);
+            return new BitmapNode(bitmap & ~bit, copy);
+        }
+
+        @Override
+        Object singleKey() {
+            return array.length == 2 ? array[0] : null;
+        }
+
+        @Override
+        Object singleValue() {
+            return array[1];
+        }
+    }
+
+    // Keys whose whole hash is the same, as key/value pairs in one array.
+    private static final class CollisionNode extends Node {
+        private final int hash;
+        private final Object[] array;
+
+        private CollisionNode(int hash, Object[] array) {
+            this.hash = hash;
+            this.array = array;
+        }
+
+        private int indexOf(Object key) {
+            for (int i = 0; i < array.length; i += 2) {
+                if (array[i].equals(key)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        @Override
+        Object get(int shift, int hash, Object key) {
+            int i = indexOf(key);
+            return i < 0 ? null : array[i + 1];
+        }
+
+        @Override
+        Node put(int shift, int hash, Object key, Object value, boolean[] added) {
+            if (hash != this.hash) {
+                // Nest this node under a bitmap node that also holds the new key
+                int bit = 1 << ((this.hash >>> shift) & MASK);
+                return new BitmapNode(bit, new Object[]{null, this}).put(shift, hash, key, value, added);
+            }
+            int i = indexOf(key);
+            if (i >= 0) {
+                if (array[i + 1] == value) {
+                    return this;
+                }
+                Object[] copy = array.clone();
+                copy[i + 1] = value;
+                return new CollisionNode(hash, copy);
+            }
+            added[0] = true;
+            Object[] copy = Arrays.copyOf(array, array.length + 2);
+            copy[array.length] = key;
+            copy[array.length + 1] = value;
+            return new CollisionNode(hash, copy);
+        }
+
+        @Override
+        Node remove(int shift, int hash, Object key) {
+            int i = indexOf(key);
+            if (i < 0) {
+                return this;
+            }
+            if (array.length == 2) {
+                return null;
+            }
+            Object[] copy = new Object[array.length - 2];
+            System.arraycopy(array, 0, copy, 0, i);
+            System.arraycopy(array, i + 2, copy, i, array.length - i - 2);
+            return new CollisionNode(hash, copy);
+        }
+
+        @Override
+        Object singleKey() {
+            return array.length == 2 ? array[0] : null;
+        }
+
+        @Override
+        Object singleValue() {
+            return array[1];
+        }
+    }
+
+    // Depth-first walk over the trie with an explicit stack of arrays and positions.
+    private static final class EntryIterator<K, V> implements Iterator<Map.Entry<K, V>> {
+        private final Object[][] arrays = new Object[8][];
+        private final int[] positions = new int[8];
+        private int depth = -1;
+        private Object nextKey;
+        private Object nextValue;
+
+        private EntryIterator(Node root) {
+            if (root != null) {
+                push(root);
+                advance();
+            }
+        }
+
+        private void push(Node node) {
+            depth++;
+            arrays[depth] = node instanceof BitmapNode bitmapNode ? bitmapNode.array : ((CollisionNode) node).array;
+            positions[depth] = 0;
+        }
+
+        private void advance() {
+            nextKey = null;
+            while (depth >= 0) {
+                Object[] array = arrays[depth];
+                int i = positions[depth];
+                if (i == array.length) {
+                    arrays[depth--] = null;
+                    continue;
+                }
+                positions[depth] = i + 2;
+                if (array[i] == null) {
+                    push((Node) array[i + 1]);
+                } else {
+                    nextKey = array[i];
+                    nextValue = array[i + 1];
+                    return;
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            return nextKey != null;
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Map.Entry<K, V> next() {
+            if (nextKey == null) {
+                throw new NoSuchElementException();
+            }
+            Map.Entry<K, V> entry = Map.entry((K) nextKey, (V) nextValue);
+            advance();
+            return entry;
+        }
+    }
+
+    private static final class MappedIterator<K, V, E> implements Iterator<E> {
+        private final Iterator<Map.Entry<K, V>> entries;
+        private final boolean keys;
+
+        private MappedIterator(Iterator<Map.Entry<K, V>> entries, boolean keys) {
+            this.entries = entries;
+            this.keys = keys;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return entries.hasNext();
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public E next() {
+            Map.Entry<K, V> entry = entries.next();
+            return (E) (keys ? entry.getKey() : entry.getValue());
+        }
+    }
+}
@@ -0,0 +1,93 @@
+import java.util.Arrays;
+
+/**
+ * Scratch arrays for one int-indexed search, pooled per thread so that repeated queries do not
+ * allocate. The entries of a node are only valid while {@code stamp[node] == generation}, so
+ * starting a new search bumps the generation instead of clearing arrays sized to the graph.
+ * <p>
+ * Use {@link #acquire(int)} and {@link #release()} in a try/finally block. A search that starts
+ * another search on the same thread gets a fresh workspace instead of the pooled one.
+ */
+final class SearchWorkspace {
+    private static final ThreadLocal<SearchWorkspace> POOL = ThreadLocal.withInitial(SearchWorkspace::new);
+
+    int[] dist = new int[0];
+    int[] parent = new int[0];
+    // The index of the edge that led to each node, for searches over edge arrays.
+    int[] parentSlot = new int[0];
+    // The edge that led to each node, for searches over Edge objects. Entries from earlier
+    // searches are not cleared, so they can keep edges of a changed graph alive for a while.
+    Object[] parentEdge = new Object[0];
+    // The node behind each reached id, for graphs that cannot look a node up by its id.
+    Object[] node = new Object[0];
+    int[] queue = new int[0];
+    private final LongMinHeap heap = new LongMinHeap();
+    private DialQueue dial;
+    private int[] stamp = new int[0];
+    private int generation;
+    private boolean inUse;
+
+    static SearchWorkspace acquire(int nodeCount) {
+        SearchWorkspace workspace = POOL.get();
+        if (workspace.inUse) {
+            workspace = new SearchWorkspace();
+        }
+        workspace.inUse = true;
+        workspace.start(nodeCount);
+        return workspace;
+    }
+
+    void release() {
+        inUse = false;
+    }
+
+    // Forgets the previous search, for callers that run several searches in one acquire.
+    void clear() {
+        start(stamp.length);
+    }
+
+    private void start(int nodeCount) {
+        if (stamp.length < nodeCount) {
+            int capacity = Math.max(nodeCount, stamp.length * 3 / 2);
+            dist = new int[capacity];
+            parent = new int[capacity];
+            parentSlot = new int[capacity];
+            parentEdge = new Object[capacity];
+            node = new Object[capacity];
+            queue = new int[capacity];
+            stamp = new int[capacity];
+            generation = 0;
+        }
+        if (++generation == 0) {
+            // The counter wrapped around, so old stamps could look current
+            Arrays.fill(stamp, 0);
+            generation = 1;
+        }
+    }
+
+    // An empty priority queue for a graph whose edges weigh at most maxWeight: Dial's buckets
+    // when the weights are small, a binary heap otherwise.
+    LongPriorityQueue priorityQueue(int maxWeight) {
+        if (maxWeight > DialQueue.MAX_WEIGHT) {
+            heap.clear();
+            return heap;
+        }
+        if (dial == null || dial.width() <= maxWeight) {
+            dial = new DialQueue(maxWeight);
+        }
+        dial.clear();
+        return dial;
+    }
+
+    boolean reached(int node) {
+        return stamp[node] == generation;
+    }
+
+    // Records the best distance found so far to node and how the search got there.
+    void reach(int node, int distance, int from, Object edge) {
+        stamp[node] = generation;
+        dist[node] = distance;
+        parent[node] = from;
+        parentEdge[node] = edge;
+    }
+}
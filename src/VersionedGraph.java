@@ -0,0 +1,179 @@
+import java.util.*;
+import java.util.function.Consumer;
+
+/**
+ * A thread-safe {@link Graph} that keeps its state in immutable {@link GraphSnapshot}s, for
+ * long searches that must not see the graph change under them.
+ * <p>
+ * Readers never lock: {@link #snapshot()} is a single volatile read, and a search on the
+ * snapshot sees one consistent version of the graph however long it runs. Every read method
+ * of this class pins the current snapshot for the length of the call, so a getPath that runs
+ * while another thread removes a node returns a path of the graph either before or after the
+ * removal, never a mix. Writers are serialized. Each write copies only the nodes it changes,
+ * on top of maps shared with the previous version, and publishes the new version in one step.
+ * Old versions are left to the garbage collector and disappear once no reader holds them.
+ * <p>
+ * Edges are shared between versions, so a new weight replaces the Edge objects rather than
+ * changing them. Change weights through {@link #setConnectionWeight}; calling
+ * {@link Edge#setWeight} on an edge of this graph would change older versions as well.
+ */
+public class VersionedGraph<T> implements Graph<T> {
+    private volatile GraphSnapshot<T> current = GraphSnapshot.empty();
+    // Ids index the pooled search arrays. Ids of removed nodes are reused, as in ListGraph, so
+    // idLimit stays near the size of the graph. A search runs on one snapshot, where no two
+    // nodes share an id, so reuse needs no guard.
+    private int nextId;
+    private final Deque<Integer> freeIds = new ArrayDeque<>();
+    // Algorithm used by getPath and getDistance; null means the snapshot's built-in Dijkstra.
+    private volatile PathSearch<T> pathSearch;
+
+    // The current version, which stays the same however the graph changes afterwards.
+    public GraphSnapshot<T> snapshot() {
+        return current;
+    }
+
+    private void publish(PersistentMap<T, GraphSnapshot.Vertex<T>> vertices, int maxWeight) {
+        GraphSnapshot<T> previous = current;
+        current = new GraphSnapshot<>(vertices, previous.version() + 1, nextId, Math.max(previous.maxWeight(), maxWeight));
+    }
+
+    @Override
+    public synchronized void add(T node) {
+        PersistentMap<T, GraphSnapshot.Vertex<T>> vertices = current.vertices();
+        if (!vertices.containsKey(node)) {
+            Integer id = freeIds.poll();
+            int nodeId = id != null ? id : nextId++;
+            publish(vertices.put(node, new GraphSnapshot.Vertex<>(nodeId, PersistentMap.empty())), 0);
+        }
+    }
+
+    @Override
+    public synchronized void connect(T node1, T node2, String name, int weight) {
+        GraphSnapshot.Vertex<T> vertex1 = current.vertex(node1);
+        GraphSnapshot.Vertex<T> vertex2 = current.vertex(node2);
+        if (weight < 0) {
+            throw new IllegalArgumentException("The weight is negative");
+        }
+        if (vertex1.edges.containsKey(node2) || vertex2.edges.containsKey(node1)) {
+            throw new IllegalStateException("The edge already exists");
+        }
+        publishEdges(node1, new Edge<>(node2, name, weight), node2, new Edge<>(node1, name, weight), weight);
+    }
+
+    @Override
+    public synchronized void setConnectionWeight(T node1, T node2, int weight) {
+        GraphSnapshot.Vertex<T> vertex1 = current.vertex(node1);
+        GraphSnapshot.Vertex<T> vertex2 = current.vertex(node2);
+        if (weight < 0) {
+            throw new IllegalArgumentException("The weight is negative");
+        }
+        Edge<T> edge1 = vertex1.edges.get(node2);
+        Edge<T> edge2 = vertex2.edges.get(node1);
+        if (edge1 == null || edge2 == null) {
+            throw new NullPointerException();
+        }
+        publishEdges(node1, new Edge<>(node2, edge1.getName(), weight), node2, new Edge<>(node1, edge2.getName(), weight), weight);
+    }
+
+    // Publishes a version with edge1 from node1 and edge2 from node2 added or replaced.
+    private void publishEdges(T node1, Edge<T> edge1, T node2, Edge<T> edge2, int weight) {
+        PersistentMap<T, GraphSnapshot.Vertex<T>> vertices = current.vertices();
+        vertices = withEdges(vertices, node1, vertices.get(node1).edges.put(node2, edge1));
+        vertices = withEdges(vertices, node2, vertices.get(node2).edges.put(node1, edge2));
+        publish(vertices, weight);
+    }
+
+    private static <T> PersistentMap<T, GraphSnapshot.Vertex<T>> withEdges(
+            PersistentMap<T, GraphSnapshot.Vertex<T>> vertices, T node, PersistentMap<T, Edge<T>> edges) {
+        return vertices.put(node, new GraphSnapshot.Vertex<>(vertices.get(node).id, edges));
+    }
+
+    @Override
+    public synchronized void disconnect(T node1, T node2) {
+        GraphSnapshot.Vertex<T> vertex1 = current.vertex(node1);
+        current.vertex(node2);
+        if (!vertex1.edges.containsKey(node2)) {
+            throw new IllegalStateException();
+        }
+        PersistentMap<T, GraphSnapshot.Vertex<T>> vertices = current.vertices();
+        vertices = withEdges(vertices, node1, vertices.get(node1).edges.remove(node2));
+        vertices = withEdges(vertices, node2, vertices.get(node2).edges.remove(node1));
+        publish(vertices, 0);
+    }
+
+    @Override
+    public synchronized void remove(T node) {
+        GraphSnapshot.Vertex<T> vertex = current.vertex(node);
+        PersistentMap<T, GraphSnapshot.Vertex<T>> vertices = current.vertices().remove(node);
+        for (T destination : vertex.edges.keys()) {
+            GraphSnapshot.Vertex<T> neighbour = vertices.get(destination);
+            // null for a loop from the node to itself
+            if (neighbour != null) {
+                vertices = withEdges(vertices, destination, neighbour.edges.remove(node));
+            }
+        }
+        freeIds.push(vertex.id);
+        publish(vertices, 0);
+    }
+
+    // The nodes of the current version; later changes to the graph do not show in the set.
+    @Override
+    public Set<T> getNodes() {
+        return snapshot().getNodes();
+    }
+
+    @Override
+    public Collection<Edge<T>> getEdgesFrom(T node) {
+        return snapshot().getEdgesFrom(node);
+    }
+
+    // The edges of the current version, which never throw ConcurrentModificationException.
+    @Override
+    public Collection<Edge<T>> getEdgesView(T node) {
+        return snapshot().getEdgesView(node);
+    }
+
+    @Override
+    public void forEachEdge(T node, Consumer<? super Edge<T>> action) {
+        snapshot().forEachEdge(node, action);
+    }
+
+    @Override
+    public Collection<Map.Entry<T, Edge<T>>> getEdgesTo(T node) {
+        return snapshot().getEdgesTo(node);
+    }
+
+    @Override
+    public Edge<T> getEdgeBetween(T node1, T node2) {
+        return snapshot().getEdgeBetween(node1, node2);
+    }
+
+    @Override
+    public boolean pathExists(T from, T to) {
+        return snapshot().pathExists(from, to);
+    }
+
+    // Searches with a PathSearch also run on a pinned snapshot, so they too see one version.
+    public void setPathSearch(PathSearch<T> pathSearch) {
+        this.pathSearch = pathSearch;
+    }
+
+    @Override
+    public List<Edge<T>> getPath(T from, T to) {
+        PathSearch<T> search = pathSearch;
+        GraphSnapshot<T> snapshot = snapshot();
+        return search == null ? snapshot.getPath(from, to) : search.getPath(snapshot, from, to);
+    }
+
+    @Override
+    public int getDistance(T from, T to) {
+        PathSearch<T> search = pathSearch;
+        GraphSnapshot<T> snapshot = snapshot();
+        return search == null ? snapshot.getDistance(from, to) : search.getDistance(snapshot, from, to);
+    }
+
+    @Override
+    public String toString() {
+        return snapshot().toString();
+    }
+}
@@ -0,0 +1,161 @@
+import org.junit.jupiter.api.*;
+
+import java.util.*;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class VersionedGraphTest {
+	private final VersionedGraph<String> graph = new VersionedGraph<>();
+
+	@BeforeEach
+	void setUp() {
+		for (String node : new String[]{"A", "B", "C", "D", "E"}) {
+			graph.add(node);
+		}
+		graph.connect("A", "B", "Train", 2);
+		graph.connect("B", "C", "Train", 3);
+		graph.connect("C", "D", "Bus", 4);
+		graph.connect("A", "D", "Boat", 20);
+	}
+
+	@Test
+	@DisplayName("Testar att en ögonblicksbild inte ändras när grafen ändras.")
+	void snapshotStaysTheSame() {
+		GraphSnapshot<String> before = graph.snapshot();
+		assertEquals(9, before.getDistance("A", "D"));
+
+		graph.setConnectionWeight("B", "C", 30);
+		graph.remove("E");
+		graph.disconnect("C", "D");
+		GraphSnapshot<String> after = graph.snapshot();
+
+		assertEquals(9, before.getDistance("A", "D"), "Fel: den gamla versionen har ändrats.");
+		assertEquals(3, before.getEdgeBetween("C", "B").getWeight());
+		assertTrue(before.getNodes().contains("E"));
+		assertEquals(20, after.getDistance("A", "D"));
+		assertEquals(30, graph.getEdgeBetween("C", "B").getWeight());
+		assertFalse(graph.getNodes().contains("E"));
+		assertEquals(before.version() + 3, after.version());
+		assertThrows(UnsupportedOperationException.class, () -> before.connect("A", "C", "Train", 1));
+
+		// Oförändrade noder delas mellan versionerna
+		assertSame(before.getEdgeBetween("A", "B"), after.getEdgeBetween("A", "B"));
+	}
+
+	@Test
+	@DisplayName("Testar undantagen, som ska vara desamma som i ListGraph.")
+	void exceptionsMatchListGraph() {
+		assertThrows(NoSuchElementException.class, () -> graph.connect("A", "X", "Train", 1));
+		assertThrows(IllegalArgumentException.class, () -> graph.connect("A", "C", "Train", -1));
+		assertThrows(IllegalStateException.class, () -> graph.connect("B", "A", "Train", 1));
+		assertThrows(NullPointerException.class, () -> graph.setConnectionWeight("A", "C", 1));
+		assertThrows(IllegalStateException.class, () -> graph.disconnect("A", "C"));
+		assertThrows(NoSuchElementException.class, () -> graph.remove("X"));
+		assertThrows(NoSuchElementException.class, () -> graph.getEdgesFrom("X"));
+		assertNull(graph.getPath("A", "E"));
+		assertEquals(-1, graph.getDistance("A", "X"));
+		assertFalse(graph.pathExists("A", "E"));
+		assertTrue(graph.pathExists("A", "D"));
+	}
+
+	@Test
+	@DisplayName("Testar att id:n återanvänds så att sökningarnas arrayer inte växer när noder tas bort och läggs till.")
+	void idsAreReused() {
+		GraphSnapshot<String> before = graph.snapshot();
+		for (int round = 0; round < 100; round++) {
+			graph.remove("E");
+			graph.add("E");
+			graph.remove("D");
+			graph.add("D");
+			graph.connect("D", "C", "Bus", round + 1);
+		}
+		assertEquals(before.idLimit(), graph.snapshot().idLimit(), "Fel: id:n har inte återanvänts.");
+		assertEquals(9, before.getDistance("A", "D"));
+		assertEquals(105, graph.getDistance("A", "D"));
+		assertEquals(List.of("B", "C", "D"), graph.getPath("A", "D").stream().map(Edge::getDestination).toList());
+	}
+
+	@Test
+	@DisplayName("Testar att sökningar under pågående ändringar ser en hel version av grafen.")
+	void searchesSeeWholeVersions() throws Exception {
+		// En stig där varje båge kostar 1. Skrivaren tar bort mittnoden och lägger tillbaka den,
+		// så varje version har antingen hela stigen, med avståndet 100, eller ingen väg alls.
+		VersionedGraph<Integer> path = new VersionedGraph<>();
+		for (int i = 0; i <= 100; i++) {
+			path.add(i);
+			if (i > 0) {
+				path.connect(i - 1, i, "stig", 1);
+			}
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(3);
+		try {
+			Future<?> writer = executor.submit(() -> {
+				for (int i = 0; i < 2000; i++) {
+					path.remove(50);
+					path.add(50);
+					path.connect(49, 50, "stig", 1);
+					path.connect(50, 51, "stig", 1);
+				}
+			});
+			List<Future<?>> readers = new ArrayList<>();
+			for (int reader = 0; reader < 2; reader++) {
+				readers.add(executor.submit(() -> {
+					while (!writer.isDone()) {
+						GraphSnapshot<Integer> snapshot = path.snapshot();
+						int distance = snapshot.getDistance(0, 100);
+						boolean whole = snapshot.getNodes().contains(50) && snapshot.getEdgesFrom(50).size() == 2;
+						assertEquals(whole ? 100 : -1, distance, "Fel: sökningen såg en halv ändring.");
+					}
+				}));
+			}
+			writer.get(60, TimeUnit.SECONDS);
+			for (Future<?> reader : readers) {
+				reader.get(60, TimeUnit.SECONDS);
+			}
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	@Test
+	@DisplayName("Testar den persistenta mappen mot HashMap, med krockande hashvärden.")
+	void persistentMapMatchesHashMap() {
+		Random random = new Random(5);
+		Map<Key, Integer> expected = new HashMap<>();
+		PersistentMap<Key, Integer> map = PersistentMap.empty();
+		List<PersistentMap<Key, Integer>> versions = new ArrayList<>();
+		List<Map<Key, Integer>> expectedVersions = new ArrayList<>();
+		for (int i = 0; i < 20_000; i++) {
+			// Få hashvärden så att krockar blir vanliga, men spridda över alla bitar
+			Key key = new Key(random.nextInt(3000), random.nextInt(400) * 0x9E3779B9);
+			if (random.nextInt(3) == 0) {
+				expected.remove(key);
+				map = map.remove(key);
+			} else {
+				expected.put(key, i);
+				map = map.put(key, i);
+			}
+			if (i % 2000 == 0) {
+				versions.add(map);
+				expectedVersions.add(new HashMap<>(expected));
+			}
+		}
+		assertEquals(expected, map.asMap());
+		for (int i = 0; i < versions.size(); i++) {
+			assertEquals(expectedVersions.get(i), versions.get(i).asMap(), "Fel: en äldre version har ändrats.");
+		}
+		for (Key key : new ArrayList<>(expected.keySet())) {
+			map = map.remove(key);
+		}
+		assertTrue(map.isEmpty());
+		assertFalse(map.iterator().hasNext());
+	}
+
+	private record Key(int value, int hash) {
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+	}
+}